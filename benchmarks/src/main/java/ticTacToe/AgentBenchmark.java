@@ -0,0 +1,123 @@
+package ticTacToe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The solver and agent hot paths: one value iteration sweep, one policy evaluation round, q-learning episodes and policy lookups.
+ * 
+ * @author ae187
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentBenchmark {
+
+	/**
+	 * A value iteration agent with all state values at 0, set to do a single sweep per {@link ValueIterationAgent#iterate()}.
+	 */
+	@State(Scope.Thread)
+	public static class ValueIteration {
+		ValueIterationAgent agent;
+
+		@Setup
+		public void setup() {
+			agent = new ValueIterationAgent(0.9, 10.0, -50.0, -1.0, 0.0);
+			agent.initValues();
+			agent.k = 1;
+		}
+	}
+
+	/**
+	 * A policy iteration agent with a random policy whose values are reset to 0 before every evaluation.
+	 */
+	@State(Scope.Thread)
+	public static class PolicyIteration {
+		PolicyIterationAgent agent;
+
+		@Setup
+		public void setup() {
+			agent = new PolicyIterationAgent((Policy) null);
+			agent.mdp = new TTTMDP();
+			agent.random = new java.util.SplittableRandom(0);
+			agent.initValues();
+			agent.initRandomPolicy();
+		}
+
+		@Setup(Level.Invocation)
+		public void reset() {
+			agent.policyValues.replaceAll((g, v) -> 0.0);
+		}
+	}
+
+	/**
+	 * A q-learning agent against a random opponent, with all q-values at 0.
+	 */
+	@State(Scope.Thread)
+	public static class QLearning {
+		QLearningAgent agent;
+
+		@Setup
+		public void setup() {
+			agent = new QLearningAgent(new RandomAgent(new java.util.SplittableRandom(1)), 0.1, 0, 0.9,
+					new java.util.SplittableRandom(2));
+			agent.initQTable();
+		}
+	}
+
+	/**
+	 * The trained value iteration policy and every state it covers, looked up in turn.
+	 */
+	@State(Scope.Thread)
+	public static class PolicyLookup {
+		Policy policy;
+		Game[] games;
+		int next;
+
+		@Setup
+		public void setup() {
+			policy = new ValueIterationAgent().getPolicy();
+			games = policy.policy.keySet().toArray(new Game[0]);
+		}
+	}
+
+	@Benchmark
+	public void valueIterationSweep(ValueIteration s) {
+		s.agent.iterate();
+	}
+
+	@Benchmark
+	public void policyEvaluation(PolicyIteration s) {
+		s.agent.evaluatePolicy(s.agent.delta);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(100)
+	public void qLearningEpisodes(QLearning s) {
+		for (int i = 0; i < 100; i++)
+			s.agent.playEpisode();
+	}
+
+	@Benchmark
+	public Move policyGetMove(PolicyLookup s) {
+		Game g = s.games[s.next];
+		s.next = (s.next + 1) % s.games.length;
+		return s.policy.getMove(g);
+	}
+
+}
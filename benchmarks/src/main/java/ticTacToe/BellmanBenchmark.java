@@ -0,0 +1,69 @@
+package ticTacToe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Bellman backup of every action of a {@link CompiledMDP}, on the scalar loop and on the {@link VectorKernel}. The forked JVM
+ * enables the kernel and adds the {@code jdk.incubator.vector} module, so this benchmark needs Java 17 or later; {@code vector}
+ * runs the scalar loop too if the kernel is not available, which {@link #setup} prints.
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g", "--add-modules=jdk.incubator.vector", "-DticTacToe.vector=true" })
+public class BellmanBenchmark {
+
+	@Param({ "3,3,3", "4,4,3" })
+	String board;
+
+	CompiledMDP mdp;
+
+	double[] values;
+
+	double[] rewards;
+
+	@Setup
+	public void setup() {
+		System.out.println("Kernel: " + VectorKernel.describe());
+		mdp = CompiledMDP.get(MNK.parse(board), CompiledMDP.Layout.LAYERED);
+		values = mdp.newValues();
+		rewards = CompiledMDP.rewards(new TTTMDP());
+		mdp.sweep(values, rewards, 0.9);
+	}
+
+	@Benchmark
+	public double scalar() {
+		double sum = 0.0;
+		for (int a = 0; a < mdp.actions(); a++)
+			sum += mdp.scalarQ(a, values, rewards, 0.9);
+
+		return sum;
+	}
+
+	@Benchmark
+	public double vector() {
+		double sum = 0.0;
+		for (int a = 0; a < mdp.actions(); a++)
+			sum += mdp.q(a, values, rewards, 0.9);
+
+		return sum;
+	}
+
+}
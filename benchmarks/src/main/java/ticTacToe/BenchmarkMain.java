@@ -0,0 +1,44 @@
+package ticTacToe;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options, always adding the GC profiler so that every benchmark reports its
+ * allocation rate next to its throughput. Results are written as JSON to {@code jmh-result.json} unless {@code -rf}/{@code -rff}
+ * say otherwise, so they can be compared across commits.
+ * 
+ * @author ae187
+ *
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+		if (cmd.shouldList()) {
+			new Runner(cmd).list();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class);
+		if (!cmd.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+		if (!cmd.getResult().hasValue())
+			options.result("jmh-result.json");
+
+		new Runner(options.build()).run();
+	}
+
+}
@@ -0,0 +1,78 @@
+package ticTacToe;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link Game} primitives used by every agent and solver, on a mid-game position with X to play.
+ * 
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+	Game game;
+
+	int hash;
+
+	Move move;
+
+	@Setup
+	public void setup() throws IllegalMoveException {
+		game = new Game();
+		game.executeMove('X', 0, 0);
+		game.executeMove('O', 1, 1);
+		game.executeMove('X', 2, 2);
+		game.executeMove('O', 0, 2);
+		hash = game.hashCode();
+		move = new Move('X', 2, 0);
+	}
+
+	@Benchmark
+	public int hashCodeOf() {
+		return game.hashCode();
+	}
+
+	@Benchmark
+	public long zobristKey() {
+		return game.zobristKey();
+	}
+
+	@Benchmark
+	public Game inverseHash() {
+		return Game.inverseHash(hash);
+	}
+
+	@Benchmark
+	public int evaluateGameState() {
+		return game.evaluateGameState();
+	}
+
+	@Benchmark
+	public List<Move> getPossibleMoves() {
+		return game.getPossibleMoves();
+	}
+
+	@Benchmark
+	public Game simulateMove() throws IllegalMoveException {
+		return game.simulateMove(move);
+	}
+
+}
@@ -0,0 +1,57 @@
+package ticTacToe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One sweep of value iteration over a {@link CompiledMDP} whose states are laid out in random order and in layers, on boards whose
+ * values fit in the caches (3,3,3) and do not (4,4,3: 3.5 million states, 115 million transitions).
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LayoutBenchmark {
+
+	@Param({ "3,3,3", "3,4,3", "4,4,3" })
+	String board;
+
+	@Param({ "RANDOM", "LAYERED" })
+	CompiledMDP.Layout layout;
+
+	CompiledMDP mdp;
+
+	double[] values;
+
+	double[] rewards;
+
+	@Setup
+	public void setup() {
+		mdp = new CompiledMDP(MNK.parse(board), layout);
+		values = mdp.newValues();
+		rewards = CompiledMDP.rewards(new TTTMDP());
+		mdp.sweep(values, rewards, 0.9);
+	}
+
+	@Benchmark
+	public double sweep() {
+		return mdp.sweep(values, rewards, 0.9);
+	}
+
+}
@@ -0,0 +1,51 @@
+package ticTacToe;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link TTTMDP#generateTransitions}, which every value and policy iteration backup calls, from an opening position.
+ * 
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MDPBenchmark {
+
+	TTTMDP mdp;
+
+	Game game;
+
+	Move move;
+
+	@Setup
+	public void setup() throws IllegalMoveException {
+		mdp = new TTTMDP();
+		game = new Game();
+		game.executeMove('X', 1, 1);
+		game.executeMove('O', 0, 0);
+		move = new Move('X', 2, 2);
+	}
+
+	@Benchmark
+	public List<TransitionProb> generateTransitions() {
+		return mdp.generateTransitions(game, move);
+	}
+
+}
@@ -0,0 +1,77 @@
+package ticTacToe;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looking up the value of every state of the game, keyed by Zobrist key, in a boxed {@link HashMap} and in a {@link LongDoubleMap}
+ * on and off heap.
+ *
+ * @author ae187
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+
+	static final int STATES = 7572;
+
+	@Param({ "false", "true" })
+	boolean offHeap;
+
+	long[] keys;
+
+	HashMap<Long, Double> boxed;
+
+	LongDoubleMap primitive;
+
+	@Setup
+	public void setup() {
+		List<Game> games = Game.generateAllValidGames('X');
+		keys = new long[games.size()];
+		boxed = new HashMap<Long, Double>();
+		primitive = new LongDoubleMap(games.size(), offHeap);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = games.get(i).zobristKey();
+			boxed.put(keys[i], (double) i);
+			primitive.put(keys[i], i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STATES)
+	public double hashMapGet() {
+		double sum = 0;
+		for (long key : keys)
+			sum += boxed.get(key);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STATES)
+	public double longDoubleMapGet() {
+		double sum = 0;
+		for (long key : keys)
+			sum += primitive.get(key, 0.0);
+		return sum;
+	}
+
+}
@@ -1,42 +1,55 @@
 package ticTacToe;
 
 
-import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 /**
  * An agrgessive policy: if there is a winning move given a game state (Game object) then this policy finds it. Otherwise returns a
  * random available move.
+ * 
+ * Winning moves are found with the precomputed {@link Bitboards} line masks rather than by simulating every move.
  *  
  * @author ae187
  *
  */
 public class AggressivePolicy extends Policy {
 	
+	SplittableRandom r;
+	
+	/**
+	 * An aggressive policy using a stream split off {@link RandomSource}
+	 */
+	public AggressivePolicy()
+	{
+		this(RandomSource.split());
+	}
+	
+	public AggressivePolicy(SplittableRandom r)
+	{
+		this.r=r;
+	}
 	
 	public Move getMove(Game g) {
 		
+		// no moves are possible once the game is over
+		long empty=g.getState()==Game.ONGOING?Bitboards.mask(g, ' '):0;
+		long mine=Bitboards.mask(g, g.whoseTurn.getName());
+		int cols=g.getMNK().cols;
 		
-		List<Move> moves=g.getPossibleMoves();
-		
-		for(Move m:moves)
+		// the lowest winning cell is the first winning move in row-major order
+		long wins=g.getMNK().winningCells(mine, empty);
+		if (wins!=0)
 		{
-			
-			Game resulting=null;
-			try{
-				resulting=g.simulateMove(m);
-			}
-			catch(IllegalMoveException e)
-			{
-				System.out.println(e.getMessage());
-				e.printStackTrace();
-			}
-			if (resulting.getState()==Game.X_WON||resulting.getState()==Game.O_WON)
-				return m;
+			int cell=Long.numberOfTrailingZeros(wins);
+			Move m=new Move(g.whoseTurn, cell/cols, cell%cols);
+			g.getListener().policyDecision(g, m, GameListener.Decision.AGGRESSIVE);
+			return m;
 		}
 		
-		Random r=new Random();
+		int cell=Bitboards.select(empty, r.nextInt(Long.bitCount(empty)));
+		Move randomMove=new Move(g.whoseTurn, cell/cols, cell%cols);
+		g.getListener().policyDecision(g, randomMove, GameListener.Decision.RANDOM);
 		
-		return moves.get(r.nextInt(moves.size()));
+		return randomMove;
 		
 	}
 
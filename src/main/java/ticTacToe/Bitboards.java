@@ -0,0 +1,102 @@
+package ticTacToe;
+
+/**
+ * Bitboard helpers for the 3x3 board. A set of cells is an int mask where cell (x,y) is bit x*3+y, so iterating over the set bits
+ * from the lowest up visits cells in the same row-major order as {@link Game#getPossibleMoves()}. On other boards sets of cells are
+ * {@code long} masks laid out by {@link MNK}, which works out their winning cells.
+ * 
+ * @author ae187
+ *
+ */
+public final class Bitboards {
+
+	/**
+	 * All nine cells
+	 */
+	public static final int FULL = 0x1FF;
+
+	/**
+	 * The eight winning lines: three rows, three columns and two diagonals.
+	 */
+	public static final int[] WIN_LINES = { 0007, 0070, 0700, 0111, 0222, 0444, 0421, 0124 };
+
+	/**
+	 * For every set of cells owned by a player, the empty-or-not cells that would complete one of the player's lines, i.e. the
+	 * third cell of every line in which the player already owns two. AND it with the empty cells to get the winning moves.
+	 */
+	static final int[] THREATS = new int[FULL + 1];
+
+	static {
+		for (int mine = 0; mine <= FULL; mine++)
+			for (int line : WIN_LINES)
+				if (Integer.bitCount(line & mine) == 2)
+					THREATS[mine] |= line & ~mine;
+	}
+
+	private Bitboards() {
+	}
+
+	/**
+	 * @return the cells of {@code g} holding {@code xo}, either 'X', 'O' or ' '
+	 */
+	public static long mask(Game g, char xo) {
+		if (xo == 'X')
+			return g.xs;
+		if (xo == 'O')
+			return g.os;
+
+		return g.mnk.full & ~(g.xs | g.os);
+	}
+
+	/**
+	 * @return the empty cells that would complete one of the lines of the player owning {@code mine}
+	 */
+	public static int winningCells(int mine, int empty) {
+		return THREATS[mine] & empty;
+	}
+
+	/**
+	 * @return the index of the {@code k}-th (from 0) lowest set bit of {@code mask}
+	 */
+	public static int select(int mask, int k) {
+		for (int i = 0; i < k; i++)
+			mask &= mask - 1;
+
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	/**
+	 * @return the index of the {@code k}-th (from 0) lowest set bit of {@code mask}
+	 */
+	public static int select(long mask, int k) {
+		for (int i = 0; i < k; i++)
+			mask &= mask - 1;
+
+		return Long.numberOfTrailingZeros(mask);
+	}
+
+	/**
+	 * Gathers the bits of {@code bits} at the set bits of {@code mask} into the low bits of the result, lowest first.
+	 */
+	public static long compress(long bits, long mask) {
+		long result = 0;
+		for (int i = 0; mask != 0; mask &= mask - 1, i++)
+			if ((bits & mask & -mask) != 0)
+				result |= 1L << i;
+
+		return result;
+	}
+
+	/**
+	 * The inverse of {@link #compress}: scatters the low bits of {@code bits} to the set bits of {@code mask}, lowest first.
+	 */
+	public static long expand(long bits, long mask) {
+		long result = 0;
+		for (int i = 0; mask != 0; mask &= mask - 1, i++)
+			if ((bits >>> i & 1) != 0)
+				result |= mask & -mask;
+
+		return result;
+	}
+
+}
@@ -0,0 +1,188 @@
+package ticTacToe;
+
+/**
+ * A dense {@link StateIndex} of the positions in which the players' numbers of marks differ by at most one, computed directly from
+ * the bitboards without any table of states, so it works for boards far too large to list their positions.
+ *
+ * Each layer of {@code n} marks is split by O's lead, {@code no - nx}, from {@link #minLead} to {@link #maxLead}; a split holds every
+ * way of choosing {@code n} occupied cells out of the board's and {@code nx} of those for X, so it has
+ * {@code C(cells, n) * C(n, nx)} positions. Within a split the index of a position is
+ * {@code colex(occupied) * C(n, nx) + colex(compress(xs, occupied))}, where {@code colex} is the rank of a set among the sets of its
+ * size in colexicographic order, i.e. the sum of {@code C(c, i)} over its {@code i}-th lowest cell {@code c}, counting from 1. Only
+ * binomial coefficients are tabulated, 65 by 65 of them.
+ *
+ * Positions after a win, which the game never reaches, still get an index, so the index is not quite minimal. Still, on 3x3
+ * {@link #xToMove} has 6046 indices and {@link #reachable} 8953, against 19683 base-3 codes, and on 4,4,4 {@link #xToMove} has
+ * about 10 million against 43 million.
+ *
+ * @author ae187
+ *
+ */
+public class CombinatorialIndex implements StateIndex {
+
+	/**
+	 * {@code BINOMIAL[n][k]} is n choose k, 0 when k is greater than n
+	 */
+	static final long[][] BINOMIAL = new long[65][65];
+
+	static {
+		for (int n = 0; n <= 64; n++) {
+			BINOMIAL[n][0] = 1;
+			for (int k = 1; k <= n; k++)
+				BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+		}
+	}
+
+	final MNK mnk;
+
+	final int cells;
+
+	/**
+	 * The range of O's lead, i.e. O's marks minus X's, of the positions indexed
+	 */
+	final int minLead, maxLead;
+
+	final long[] layerStart;
+
+	/**
+	 * @param mnk
+	 * @param minLead
+	 *            the least number of marks O has more than X, at least -1
+	 * @param maxLead
+	 *            the most, at most 1
+	 * @throws IllegalArgumentException
+	 *             if the board has too many positions to be indexed by a {@code long}
+	 */
+	public CombinatorialIndex(MNK mnk, int minLead, int maxLead) {
+		if (minLead < -1 || maxLead > 1 || minLead > maxLead)
+			throw new IllegalArgumentException("O's lead should be between -1 and 1: " + minLead + ".." + maxLead);
+
+		this.mnk = mnk;
+		this.cells = mnk.cells();
+		this.minLead = minLead;
+		this.maxLead = maxLead;
+		this.layerStart = new long[cells + 2];
+
+		try {
+			for (int n = 0; n <= cells; n++) {
+				long size = 0;
+				for (int lead = minLead; lead <= maxLead; lead++)
+					size = Math.addExact(size, splitSize(n, lead));
+				layerStart[n + 1] = Math.addExact(layerStart[n], size);
+			}
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Too many positions to index: " + mnk);
+		}
+	}
+
+	/**
+	 * @return an index of the positions in which it is X's turn, whoever started, as solved by the value and policy iteration agents
+	 */
+	public static CombinatorialIndex xToMove(MNK mnk) {
+		return new CombinatorialIndex(mnk, 0, 1);
+	}
+
+	/**
+	 * @return an index of every position either player can face, whoever started
+	 */
+	public static CombinatorialIndex reachable(MNK mnk) {
+		return new CombinatorialIndex(mnk, -1, 1);
+	}
+
+	/**
+	 * @return X's number of marks out of {@code n} when O leads by {@code lead}, or -1 if there is no such split
+	 */
+	static int xCount(int n, int lead) {
+		int nx = (n - lead) / 2;
+		return (n - lead) % 2 == 0 && nx >= 0 && nx + lead >= 0 ? nx : -1;
+	}
+
+	long splitSize(int n, int lead) {
+		int nx = xCount(n, lead);
+		return nx < 0 ? 0 : Math.multiplyExact(BINOMIAL[cells][n], BINOMIAL[n][nx]);
+	}
+
+	/**
+	 * @return the rank of {@code set} among the sets of the same size in colexicographic order
+	 */
+	static long colex(long set) {
+		long rank = 0;
+		for (int i = 1; set != 0; set &= set - 1, i++)
+			rank += BINOMIAL[Long.numberOfTrailingZeros(set)][i];
+
+		return rank;
+	}
+
+	/**
+	 * @return the set of {@code size} cells with {@link #colex} rank {@code rank}, found greedily from the highest cell down
+	 */
+	long uncolex(long rank, int size) {
+		long set = 0;
+		int c = cells - 1;
+		for (int i = size; i > 0; i--, c--) {
+			while (BINOMIAL[c][i] > rank)
+				c--;
+			rank -= BINOMIAL[c][i];
+			set |= 1L << c;
+		}
+		return set;
+	}
+
+	@Override
+	public MNK mnk() {
+		return mnk;
+	}
+
+	@Override
+	public long size() {
+		return layerStart[cells + 1];
+	}
+
+	@Override
+	public long layerStart(int n) {
+		return layerStart[n];
+	}
+
+	@Override
+	public boolean contains(long xs, long os) {
+		int lead = Long.bitCount(os) - Long.bitCount(xs);
+		return lead >= minLead && lead <= maxLead && (xs & os) == 0 && ((xs | os) & ~mnk.full) == 0;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the position is not indexed, see {@link #contains}
+	 */
+	@Override
+	public long rank(long xs, long os) {
+		if (!contains(xs, os))
+			throw new IllegalArgumentException("Position not indexed: X " + Long.toHexString(xs) + " O " + Long.toHexString(os));
+
+		long occupied = xs | os;
+		int n = Long.bitCount(occupied);
+		int nx = Long.bitCount(xs);
+		long index = layerStart[n];
+		for (int lead = minLead; lead < Long.bitCount(os) - nx; lead++)
+			index += splitSize(n, lead);
+
+		return index + colex(occupied) * BINOMIAL[n][nx] + colex(Bitboards.compress(xs, occupied));
+	}
+
+	@Override
+	public void unrank(long index, long[] stones) {
+		int n = 0;
+		while (index >= layerStart[n + 1])
+			n++;
+
+		long r = index - layerStart[n];
+		int lead = minLead;
+		while (r >= splitSize(n, lead))
+			r -= splitSize(n, lead++);
+
+		int nx = xCount(n, lead);
+		long occupied = uncolex(r / BINOMIAL[n][nx], n);
+		stones[0] = Bitboards.expand(uncolex(r % BINOMIAL[n][nx], nx), occupied);
+		stones[1] = occupied & ~stones[0];
+	}
+
+}
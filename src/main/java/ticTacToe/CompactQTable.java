@@ -0,0 +1,121 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Q-Table over the actions of a {@link CompiledMDP}: Q(s,a) is entry {@code a} of one flat array, as a double or, in single
+ * precision, as a float, which takes a quarter of the memory of a {@link QTable}'s boxed values (and a half of a double array).
+ * Updates are computed in double precision by the learner either way, only the stored values are rounded.
+ *
+ * Every non-terminal game where it is X's turn has its q-values, all 0 to start with; looking up any other game is an error.
+ *
+ * @author ae187
+ *
+ */
+public class CompactQTable {
+
+	final CompiledMDP mdp;
+
+	/**
+	 * The q-value of each action, in one of the two arrays
+	 */
+	final double[] doubles;
+	final float[] floats;
+
+	public CompactQTable(CompiledMDP mdp, boolean singlePrecision) {
+		this.mdp = mdp;
+		this.doubles = singlePrecision ? null : new double[mdp.actions()];
+		this.floats = singlePrecision ? new float[mdp.actions()] : null;
+	}
+
+	public boolean isSinglePrecision() {
+		return floats != null;
+	}
+
+	public double get(int action) {
+		return floats != null ? floats[action] : doubles[action];
+	}
+
+	public void set(int action, double q) {
+		if (floats != null)
+			floats[action] = (float) q;
+		else
+			doubles[action] = q;
+	}
+
+	/**
+	 * @return the id of the state of {@code g} in {@link #mdp}
+	 * @throws IllegalArgumentException
+	 *             if {@code g} has no q-values
+	 */
+	int state(Game g) {
+		int s = mdp.id(g);
+		if (s < 0)
+			throw new IllegalArgumentException("No q-values for game: " + g);
+
+		return s;
+	}
+
+	/**
+	 * @return the action of state {@code s} with the highest q-value, the last of them if there are several
+	 */
+	public int best(int s) {
+		double max = -Double.MAX_VALUE;
+		int best = -1;
+		for (int a = mdp.firstAction(s); a < mdp.firstAction(s + 1); a++)
+			if (get(a) >= max) {
+				max = get(a);
+				best = a;
+			}
+
+		return best;
+	}
+
+	public Move best(Game g) {
+		return mdp.move(best(state(g)));
+	}
+
+	/**
+	 * @return the moves of {@code g} that have q-values
+	 */
+	public List<Move> moves(Game g) {
+		int s = state(g);
+		List<Move> moves = new ArrayList<Move>();
+		for (int a = mdp.firstAction(s); a < mdp.firstAction(s + 1); a++)
+			moves.add(mdp.move(a));
+
+		return moves;
+	}
+
+	public double getQValue(Game g, Move m) {
+		return get(action(g, m));
+	}
+
+	public void addQValue(Game g, Move m, double v) {
+		set(action(g, m), v);
+	}
+
+	int action(Game g, Move m) {
+		int a = mdp.action(state(g), m);
+		if (a < 0)
+			throw new IllegalArgumentException("No q-value for move " + m + " in game: " + g);
+
+		return a;
+	}
+
+	/**
+	 * @return the number of games with q-values
+	 */
+	public int size() {
+		return mdp.states();
+	}
+
+	/**
+	 * @return the number of bytes taken by the q-values
+	 */
+	public long footprint() {
+		return floats != null ? 4L * floats.length : 8L * doubles.length;
+	}
+
+}
@@ -0,0 +1,513 @@
+package ticTacToe;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The MDP of {@link TTTMDP}, X against a uniformly random O, compiled once into flat arrays so that solvers can sweep it without
+ * creating {@link Game}s or {@link TransitionProb}s. States are the non-terminal positions where it is X's turn, numbered
+ * {@code 0..states()-1} in the order given by a {@link Layout}; terminal positions all share the extra id {@code states()}, whose
+ * value is always 0.
+ *
+ * The transitions are stored in compressed sparse row form: the actions of state {@code s} are
+ * {@code actionStart[s]..actionStart[s+1]-1}, and the transitions of action {@code a} are
+ * {@code transitionStart[a]..transitionStart[a+1]-1}, each with its probability, the id of the state it leads to and the kind of
+ * reward received ({@link #WIN}, {@link #LOSE}, {@link #DRAW} or {@link #LIVING}). Rewards are looked up by kind in an array made
+ * by {@link #rewards(TTTMDP)}, so one compiled MDP serves any rewards and discount.
+ *
+ * Values are kept by the solvers in a {@code double[]} of {@code states()+1} entries, the last being the terminal 0, or in a
+ * {@code float[]} to halve the memory they take and read: every method taking values comes in both forms, and sums in double
+ * precision either way, so only the stored values are rounded.
+ *
+ * On Java 17 and later, double precision backups can run on the SIMD {@link VectorKernel} instead of the scalar loop of
+ * {@link #scalarQ}, see there.
+ *
+ * @author ae187
+ *
+ */
+public class CompiledMDP {
+
+	/**
+	 * How state ids are assigned, which decides how far apart in memory a state and its successors are
+	 */
+	public enum Layout {
+		/**
+		 * Ids in a random order, so every successor lookup is a jump to an unrelated part of the arrays
+		 */
+		RANDOM,
+		/**
+		 * Ids by number of marks, fullest boards first, and within a layer by the mean id of the state's successors, so that
+		 * neighbouring states read neighbouring successors. Sweeping in id order also visits every state after its successors, so
+		 * one sweep of value iteration reaches the exact values.
+		 */
+		LAYERED
+	}
+
+	/**
+	 * Kinds of reward, indices into the array made by {@link #rewards(TTTMDP)}
+	 */
+	public static final byte LIVING = 0, WIN = 1, LOSE = 2, DRAW = 3;
+
+	/**
+	 * The seed of the {@link Layout#RANDOM} order, so that it is the same in every run
+	 */
+	static final long RANDOM_LAYOUT_SEED = 0x5EEDL;
+
+	final MNK mnk;
+
+	final Layout layout;
+
+	final int states;
+
+	/**
+	 * The cells of X and O in every state
+	 */
+	final long[] xs, os;
+
+	final int[] actionStart;
+
+	/**
+	 * The cell X plays in every action
+	 */
+	final byte[] actionCell;
+
+	final int[] transitionStart;
+
+	final double[] prob;
+
+	final int[] next;
+
+	final byte[] kind;
+
+	/**
+	 * The ranking of positions the states were enumerated by, and the id of each index, -1 for terminal positions
+	 */
+	final CombinatorialIndex index;
+	final int[] idOf;
+
+	/**
+	 * Compiled MDPs already built, by board and layout. They are only softly held: one stays here while an agent solving it holds
+	 * it, and after that until the garbage collector needs its memory.
+	 */
+	static final HashMap<String, SoftReference<CompiledMDP>> compiled = new HashMap<String, SoftReference<CompiledMDP>>();
+
+	/**
+	 * @return the compiled MDP of {@code mnk} with {@code layout}, compiling it the first time it is asked for, or again if it has
+	 *         been collected since
+	 */
+	public static synchronized CompiledMDP get(MNK mnk, Layout layout) {
+		String key = mnk + " " + layout;
+		SoftReference<CompiledMDP> ref = compiled.get(key);
+		CompiledMDP mdp = ref == null ? null : ref.get();
+		if (mdp == null) {
+			compiled.values().removeIf(r -> r.get() == null);
+			mdp = new CompiledMDP(mnk, layout);
+			compiled.put(key, new SoftReference<CompiledMDP>(mdp));
+		}
+		return mdp;
+	}
+
+	/**
+	 * Compiles the MDP of {@code mnk}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the board has too many states or transitions for arrays; see {@link OutOfCoreValueIterationAgent}
+	 */
+	public CompiledMDP(MNK mnk, Layout layout) {
+		this.mnk = mnk;
+		this.layout = layout;
+
+		this.index = CombinatorialIndex.xToMove(mnk);
+		if (index.size() > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many states to compile: " + mnk);
+
+		// the index ranks of the states of each layer, and the id each rank is given
+		this.idOf = new int[(int) index.size()];
+		Arrays.fill(idOf, -1);
+		List<long[]> layers = new ArrayList<long[]>();
+		long[] stones = new long[2];
+		int count = 0;
+		for (int n = 0; n <= mnk.cells(); n++) {
+			long[] layer = StateSpace.layer(index, n).filter(i -> {
+				long[] s = new long[2];
+				index.unrank(i, s);
+				return !isTerminal(mnk, s[0], s[1]);
+			}).toArray();
+			layers.add(layer);
+			count += layer.length;
+		}
+		this.states = count;
+		this.xs = new long[states];
+		this.os = new long[states];
+
+		if (layout == Layout.RANDOM) {
+			int[] order = new int[states];
+			for (int i = 0; i < states; i++)
+				order[i] = i;
+			SplittableRandom random = new SplittableRandom(RANDOM_LAYOUT_SEED);
+			for (int i = states - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1), t = order[i];
+				order[i] = order[j];
+				order[j] = t;
+			}
+
+			int i = 0;
+			for (long[] layer : layers)
+				for (long rank : layer)
+					assign(index, idOf, rank, order[i++], stones);
+		} else {
+			int id = 0;
+			for (int n = mnk.cells(); n >= 0; n--) {
+				long[] layer = layers.get(n);
+				double[] keys = new double[layer.length];
+				Integer[] order = new Integer[layer.length];
+				for (int i = 0; i < layer.length; i++) {
+					index.unrank(layer[i], stones);
+					keys[i] = meanSuccessor(index, idOf, stones[0], stones[1]);
+					order[i] = i;
+				}
+				Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+				for (int i : order)
+					assign(index, idOf, layer[i], id++, stones);
+			}
+		}
+
+		// count, then fill, the actions and transitions in id order
+		long actions = 0, transitions = 0;
+		for (int s = 0; s < states; s++)
+			for (long free = mnk.full & ~(xs[s] | os[s]); free != 0; free &= free - 1) {
+				actions++;
+				transitions += replies(mnk, xs[s] | (free & -free), os[s]);
+			}
+		if (transitions > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many transitions to compile: " + mnk);
+
+		this.actionStart = new int[states + 1];
+		this.actionCell = new byte[(int) actions];
+		this.transitionStart = new int[(int) actions + 1];
+		this.prob = new double[(int) transitions];
+		this.next = new int[(int) transitions];
+		this.kind = new byte[(int) transitions];
+
+		int a = 0, t = 0;
+		for (int s = 0; s < states; s++) {
+			actionStart[s] = a;
+			for (long free = mnk.full & ~(xs[s] | os[s]); free != 0; free &= free - 1, a++) {
+				long x = xs[s] | (free & -free);
+				actionCell[a] = (byte) Long.numberOfTrailingZeros(free);
+				transitionStart[a] = t;
+
+				if (mnk.isWin(x))
+					t = add(t, 1.0, states, WIN);
+				else if ((x | os[s]) == mnk.full)
+					t = add(t, 1.0, states, DRAW);
+				else {
+					long empty = mnk.full & ~(x | os[s]);
+					double p = (double) 1 / Long.bitCount(empty);
+					for (; empty != 0; empty &= empty - 1) {
+						long o = os[s] | (empty & -empty);
+						if (mnk.isWin(o))
+							t = add(t, p, states, LOSE);
+						else if ((x | o) == mnk.full)
+							t = add(t, p, states, DRAW);
+						else
+							t = add(t, p, idOf[(int) index.rank(x, o)], LIVING);
+					}
+				}
+			}
+		}
+		actionStart[states] = a;
+		transitionStart[a] = t;
+	}
+
+	void assign(CombinatorialIndex index, int[] idOf, long rank, int id, long[] stones) {
+		index.unrank(rank, stones);
+		xs[id] = stones[0];
+		os[id] = stones[1];
+		idOf[(int) rank] = id;
+	}
+
+	int add(int t, double p, int state, byte k) {
+		prob[t] = p;
+		next[t] = state;
+		kind[t] = k;
+		return t + 1;
+	}
+
+	/**
+	 * @return the mean id of the non-terminal states reachable in one move and reply from X on {@code x} and O on {@code o}, which
+	 *         have all been assigned ids, or -1 if there are none
+	 */
+	static double meanSuccessor(CombinatorialIndex index, int[] idOf, long x, long o) {
+		MNK mnk = index.mnk();
+		double sum = 0;
+		int count = 0;
+		for (long free = mnk.full & ~(x | o); free != 0; free &= free - 1) {
+			long nx = x | (free & -free);
+			if (mnk.isWin(nx))
+				continue;
+
+			for (long empty = mnk.full & ~(nx | o); empty != 0; empty &= empty - 1) {
+				long no = o | (empty & -empty);
+				if (!isTerminal(mnk, nx, no)) {
+					sum += idOf[(int) index.rank(nx, no)];
+					count++;
+				}
+			}
+		}
+		return count == 0 ? -1 : sum / count;
+	}
+
+	/**
+	 * @return the number of transitions of X moving to {@code x}: 1 if that ends the game, otherwise one per reply
+	 */
+	static int replies(MNK mnk, long x, long o) {
+		long empty = mnk.full & ~(x | o);
+		return mnk.isWin(x) || empty == 0 ? 1 : Long.bitCount(empty);
+	}
+
+	static boolean isTerminal(MNK mnk, long x, long o) {
+		return mnk.isWin(x) || mnk.isWin(o) || (x | o) == mnk.full;
+	}
+
+	/**
+	 * @return the id of the state with X on {@code xs} and O on {@code os}, or -1 if that is not a state, e.g. a terminal position
+	 */
+	public int id(long xs, long os) {
+		return index.contains(xs, os) ? idOf[(int) index.rank(xs, os)] : -1;
+	}
+
+	/**
+	 * @return the id of the state of {@code g}, or -1 if it is not one
+	 */
+	public int id(Game g) {
+		return g.getMNK().equals(mnk) ? id(g.xs, g.os) : -1;
+	}
+
+	/**
+	 * @return the action of state {@code s} that plays {@code m}, or -1 if there is none
+	 */
+	public int action(int s, Move m) {
+		int cell = mnk.cell(m.x, m.y);
+		for (int a = actionStart[s]; a < actionStart[s + 1]; a++)
+			if (actionCell[a] == cell)
+				return a;
+
+		return -1;
+	}
+
+	/**
+	 * @return the first action of state {@code s}; its actions are {@code firstAction(s)..firstAction(s+1)-1}
+	 */
+	public int firstAction(int s) {
+		return actionStart[s];
+	}
+
+	/**
+	 * @return the rewards of {@code mdp} indexed by kind of reward
+	 */
+	public static double[] rewards(TTTMDP mdp) {
+		double[] rewards = new double[4];
+		rewards[LIVING] = mdp.livingReward;
+		rewards[WIN] = mdp.winReward;
+		rewards[LOSE] = mdp.loseReward;
+		rewards[DRAW] = mdp.drawReward;
+		return rewards;
+	}
+
+	/**
+	 * @return the number of states, not counting the terminal one
+	 */
+	public int states() {
+		return states;
+	}
+
+	public int actions() {
+		return actionStart[states];
+	}
+
+	public int transitions() {
+		return transitionStart[actions()];
+	}
+
+	public Layout layout() {
+		return layout;
+	}
+
+	/**
+	 * @return a new array of values, 0 for every state and the terminal one
+	 */
+	public double[] newValues() {
+		return new double[states + 1];
+	}
+
+	/**
+	 * @return the kernel {@link #q(int, double[], double[], double)} runs on: "scalar", or "vector" and its number of lanes
+	 */
+	public static String kernel() {
+		return VectorKernel.describe();
+	}
+
+	/**
+	 * @return a new array of single precision values, 0 for every state and the terminal one
+	 */
+	public float[] newFloatValues() {
+		return new float[states + 1];
+	}
+
+	/**
+	 * @return the expected reward plus discounted value of the successors of {@code action}, summed in the same order as over
+	 *         {@link TTTMDP#generateTransitions}
+	 */
+	public double q(int action, double[] values, double[] rewards, double discount) {
+		if (VectorKernel.AVAILABLE)
+			return VectorKernel.q(this, action, values, rewards, discount);
+
+		return scalarQ(action, values, rewards, discount);
+	}
+
+	/**
+	 * {@link #q(int, double[], double[], double)} without the vector kernel, one transition at a time
+	 */
+	public double scalarQ(int action, double[] values, double[] rewards, double discount) {
+		double sum = 0.0;
+		for (int t = transitionStart[action]; t < transitionStart[action + 1]; t++)
+			sum += prob[t] * (rewards[kind[t]] + discount * values[next[t]]);
+
+		return sum;
+	}
+
+	public double q(int action, float[] values, double[] rewards, double discount) {
+		double sum = 0.0;
+		for (int t = transitionStart[action]; t < transitionStart[action + 1]; t++)
+			sum += prob[t] * (rewards[kind[t]] + discount * values[next[t]]);
+
+		return sum;
+	}
+
+	/**
+	 * @return the action of {@code s} with the highest {@link #q}, the last of them if several tie
+	 */
+	public int greedy(int s, double[] values, double[] rewards, double discount) {
+		double best = -Double.MAX_VALUE;
+		int bestAction = -1;
+		for (int a = actionStart[s]; a < actionStart[s + 1]; a++) {
+			double q = q(a, values, rewards, discount);
+			if (q >= best) {
+				best = q;
+				bestAction = a;
+			}
+		}
+		return bestAction;
+	}
+
+	public int greedy(int s, float[] values, double[] rewards, double discount) {
+		double best = -Double.MAX_VALUE;
+		int bestAction = -1;
+		for (int a = actionStart[s]; a < actionStart[s + 1]; a++) {
+			double q = q(a, values, rewards, discount);
+			if (q >= best) {
+				best = q;
+				bestAction = a;
+			}
+		}
+		return bestAction;
+	}
+
+	/**
+	 * One in-place sweep of value iteration over the states in id order.
+	 *
+	 * @return the largest change in a value
+	 */
+	public double sweep(double[] values, double[] rewards, double discount) {
+		double residual = 0.0;
+		for (int s = 0; s < states; s++) {
+			double value = -Double.MAX_VALUE;
+			for (int a = actionStart[s]; a < actionStart[s + 1]; a++)
+				value = Math.max(value, q(a, values, rewards, discount));
+
+			residual = Math.max(residual, Math.abs(values[s] - value));
+			values[s] = value;
+		}
+		return residual;
+	}
+
+	public double sweep(float[] values, double[] rewards, double discount) {
+		double residual = 0.0;
+		for (int s = 0; s < states; s++) {
+			double value = -Double.MAX_VALUE;
+			for (int a = actionStart[s]; a < actionStart[s + 1]; a++)
+				value = Math.max(value, q(a, values, rewards, discount));
+
+			residual = Math.max(residual, Math.abs(values[s] - (float) value));
+			values[s] = (float) value;
+		}
+		return residual;
+	}
+
+	/**
+	 * One in-place sweep of policy evaluation over the states in id order.
+	 *
+	 * @param actions
+	 *            the action taken in every state
+	 * @return the largest change in a value
+	 */
+	public double evaluationSweep(int[] actions, double[] values, double[] rewards, double discount) {
+		double residual = 0.0;
+		for (int s = 0; s < states; s++) {
+			double value = q(actions[s], values, rewards, discount);
+			residual = Math.max(residual, Math.abs(values[s] - value));
+			values[s] = value;
+		}
+		return residual;
+	}
+
+	public double evaluationSweep(int[] actions, float[] values, double[] rewards, double discount) {
+		double residual = 0.0;
+		for (int s = 0; s < states; s++) {
+			float value = (float) q(actions[s], values, rewards, discount);
+			residual = Math.max(residual, Math.abs(values[s] - value));
+			values[s] = value;
+		}
+		return residual;
+	}
+
+	/**
+	 * @return one of the actions of state {@code s}, picked uniformly at random
+	 */
+	public int randomAction(int s, SplittableRandom random) {
+		return actionStart[s] + random.nextInt(actionStart[s + 1] - actionStart[s]);
+	}
+
+	/**
+	 * @return a new game in state {@code s}, with X to move
+	 */
+	public Game game(int s) {
+		return Game.of(mnk, xs[s], os[s], 'X');
+	}
+
+	/**
+	 * @return X's move in {@code action}
+	 */
+	public Move move(int action) {
+		return new Move('X', actionCell[action] / mnk.cols, actionCell[action] % mnk.cols);
+	}
+
+	/**
+	 * @param actions
+	 *            the action taken in every state
+	 * @return a policy playing those actions
+	 */
+	public Policy policy(int[] actions) {
+		HashMap<Game, Move> policy = new HashMap<Game, Move>();
+		for (int s = 0; s < states; s++)
+			policy.put(game(s), move(actions[s]));
+
+		return new Policy(policy);
+	}
+
+}
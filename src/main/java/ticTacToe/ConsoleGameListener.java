@@ -0,0 +1,35 @@
+package ticTacToe;
+
+/**
+ * Pretty prints every event to {@code System.out}. This is the default listener of a {@link Game}.
+ *
+ * @author ae187
+ *
+ */
+public class ConsoleGameListener implements GameListener {
+
+	public static final ConsoleGameListener INSTANCE = new ConsoleGameListener();
+
+	public void movePlayed(Game g, Move m) {
+		System.out.println("Playing move: " + m);
+		System.out.println(g);
+	}
+
+	public void gameEnded(Game g) {
+		if (g.getState() == Game.X_WON) {
+			System.out.println("X won!");
+		} else if (g.getState() == Game.O_WON) {
+			System.out.println("O won!");
+		} else
+			System.out.println("It's a draw.");
+	}
+
+	public void policyDecision(Game g, Move m, Decision d) {
+		System.out.println("Playing " + d.name().toLowerCase() + " move");
+	}
+
+	public void warning(Game g, String message) {
+		System.out.println(message);
+	}
+
+}
@@ -0,0 +1,82 @@
+package ticTacToe;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts games, moves, results, policy decisions and warnings. Safe to share between games played on different threads.
+ *
+ * @author ae187
+ *
+ */
+public class CountingGameListener implements GameListener {
+
+	final LongAdder games = new LongAdder();
+	final LongAdder moves = new LongAdder();
+	final LongAdder warnings = new LongAdder();
+
+	/**
+	 * indexed by {@link Game#X_WON}, {@link Game#O_WON} and {@link Game#DRAW}
+	 */
+	final LongAdder[] results = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+
+	/**
+	 * indexed by {@link GameListener.Decision#ordinal()}
+	 */
+	final LongAdder[] decisions = new LongAdder[Decision.values().length];
+
+	public CountingGameListener() {
+		for (int i = 0; i < decisions.length; i++)
+			decisions[i] = new LongAdder();
+	}
+
+	public void gameStarted(Game g) {
+		games.increment();
+	}
+
+	public void movePlayed(Game g, Move m) {
+		moves.increment();
+	}
+
+	public void gameEnded(Game g) {
+		results[g.getState()].increment();
+	}
+
+	public void policyDecision(Game g, Move m, Decision d) {
+		decisions[d.ordinal()].increment();
+	}
+
+	public void warning(Game g, String message) {
+		warnings.increment();
+	}
+
+	public long getGames() {
+		return games.sum();
+	}
+
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	public long getWarnings() {
+		return warnings.sum();
+	}
+
+	/**
+	 * @param state
+	 *            one of {@link Game#X_WON}, {@link Game#O_WON} or {@link Game#DRAW}
+	 * @return the number of games that ended in {@code state}
+	 */
+	public long getResults(int state) {
+		return results[state].sum();
+	}
+
+	public long getDecisions(Decision d) {
+		return decisions[d.ordinal()].sum();
+	}
+
+	public String toString() {
+		return "games: " + getGames() + ", moves: " + getMoves() + ", X won: " + getResults(Game.X_WON) + ", O won: "
+				+ getResults(Game.O_WON) + ", draws: " + getResults(Game.DRAW);
+	}
+
+}
@@ -1,5 +1,7 @@
 package ticTacToe;
 
+import java.util.SplittableRandom;
+
 /**
  * A defensive agent: if there is a move to block the opponent this agent will play it. Otherwise plays randomly.
  * @author ae187
@@ -11,5 +13,13 @@ public class DefensiveAgent extends Agent {
 	{
 		super(new DefensivePolicy());
 	}
+	
+	/**
+	 * @param r the random stream used when there is no move to block
+	 */
+	public DefensiveAgent(SplittableRandom r)
+	{
+		super(new DefensivePolicy(r));
+	}
 
 }
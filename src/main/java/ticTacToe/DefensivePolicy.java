@@ -1,38 +1,55 @@
 package ticTacToe;
 
 
-import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 /**
  * A defensive policy: if there is a move to block the opponent's X's or O's in a row, this policy finds it and returns it. Otherwise
  * returns random move.
+ * 
+ * The opponent's winning cells are found with the precomputed {@link Bitboards} line masks rather than by simulating every
+ * opponent move.
  * @author ae187
  *
  */
 public class DefensivePolicy extends Policy {
 	
-public Move getMove(Game g) {
+	SplittableRandom r;
+	
+	/**
+	 * A defensive policy using a stream split off {@link RandomSource}
+	 */
+	public DefensivePolicy()
+	{
+		this(RandomSource.split());
+	}
+	
+	public DefensivePolicy(SplittableRandom r)
+	{
+		this.r=r;
+	}
+	
+	public Move getMove(Game g) {
 		
+		char me=g.whoseTurn.getName();
+		char opponent=me=='X'?'O':'X';
 		
-		List<Move> moves=g.getPossibleMovesByOpponent();
+		// no moves are possible once the game is over
+		long empty=g.getState()==Game.ONGOING?Bitboards.mask(g, ' '):0;
+		int cols=g.getMNK().cols;
 		
-		for(Move m: moves)
+		// the lowest cell the opponent could win in is the first one to block in row-major order
+		long threats=g.getMNK().winningCells(Bitboards.mask(g, opponent), empty);
+		if (threats!=0)
 		{
-			Game resulting=g.clone();
-			resulting.getBoard()[m.x][m.y]=m.who.getName();
-			resulting.evaluateGameState();
-			if (resulting.getState()==Game.X_WON||resulting.getState()==Game.O_WON)
-			{
-				Move newMove=new Move(m.who.getName()=='X'?'O':'X', m.x,m.y);
-				System.out.println("Playing defensive move");
-				return newMove;
-			}
+			int cell=Long.numberOfTrailingZeros(threats);
+			Move newMove=new Move(me, cell/cols, cell%cols);
+			g.getListener().policyDecision(g, newMove, GameListener.Decision.DEFENSIVE);
+			return newMove;
 		}
 		
-		Random r=new Random();
-		System.out.println("Playing random move");
-		Move randomMove=moves.get(r.nextInt(moves.size()));
-		Move myMove=new Move(randomMove.who.getName()=='X'?'O':'X', randomMove.x,randomMove.y);
+		int cell=Bitboards.select(empty, r.nextInt(Long.bitCount(empty)));
+		Move myMove=new Move(me, cell/cols, cell%cols);
+		g.getListener().policyDecision(g, myMove, GameListener.Decision.RANDOM);
 		
 		return myMove;
 		
@@ -0,0 +1,194 @@
+package ticTacToe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes the exact probabilities of X winning, O winning and a draw, and X's expected return, when a deterministic
+ * {@link Policy} playing X meets an opponent described by an {@link OpponentModel}. It does this in a single memoised pass over
+ * the positions reachable from the start, instead of sampling games: each position's outcome distribution is the policy's move
+ * or the opponent's move distribution applied to the outcome distributions of its successors.
+ * 
+ * The expected return uses the rewards of a {@link TTTMDP}, received after every X move (and the opponent's reply) exactly as in
+ * {@link TTTMDP#generateTransitions}, discounted once per X move.
+ * 
+ * @author ae187
+ *
+ */
+public class ExactEvaluator {
+
+	/**
+	 * The outcome distribution of a policy against an opponent
+	 */
+	public static class Evaluation {
+		public final double xWon;
+		public final double oWon;
+		public final double draw;
+		/**
+		 * X's expected discounted return from the start of the game
+		 */
+		public final double expectedReturn;
+
+		Evaluation(double[] v) {
+			this.xWon = v[X];
+			this.oWon = v[O];
+			this.draw = v[D];
+			this.expectedReturn = v[R];
+		}
+
+		public String toString() {
+			return String.format("X won %.6f, O won %.6f, draw %.6f, expected return %.4f", xWon, oWon, draw,
+					expectedReturn);
+		}
+	}
+
+	/**
+	 * Indices into an outcome distribution
+	 */
+	static final int X = 0, O = 1, D = 2, R = 3;
+
+	final Policy policy;
+
+	final OpponentModel opponent;
+
+	final TTTMDP mdp;
+
+	final double discount;
+
+	/**
+	 * The outcome distribution of every X-to-move position visited, keyed by {@code x | o << 9}
+	 */
+	final Map<Integer, double[]> memo = new HashMap<Integer, double[]>();
+
+	public ExactEvaluator(Policy policy, OpponentModel opponent, TTTMDP mdp, double discount) {
+		this.policy = policy;
+		this.opponent = opponent;
+		this.mdp = mdp;
+		this.discount = discount;
+	}
+
+	/**
+	 * Evaluates {@code policy} against {@code opponent} with the default {@link TTTMDP} rewards and a discount of 0.9.
+	 */
+	public static Evaluation evaluate(Policy policy, OpponentModel opponent, char starter) {
+		return new ExactEvaluator(policy, opponent, new TTTMDP(), 0.9).evaluate(starter);
+	}
+
+	/**
+	 * @param starter
+	 *            the side that makes the first move, 'X' or 'O'
+	 * @return the exact outcome distribution from the empty board
+	 * @throws IllegalStateException
+	 *             if the policy has no legal move in a reachable position
+	 */
+	public Evaluation evaluate(char starter) {
+		if (starter == 'X')
+			return new Evaluation(xToMove(0, 0));
+		else if (starter == 'O')
+			return new Evaluation(oToMove(0, 0));
+
+		throw new IllegalArgumentException("Starter should be either 'X' or 'O'");
+	}
+
+	/**
+	 * @return the number of X-to-move positions evaluated so far
+	 */
+	public int size() {
+		return memo.size();
+	}
+
+	double[] xToMove(int x, int o) {
+		int key = x | o << 9;
+		double[] v = memo.get(key);
+		if (v != null)
+			return v;
+
+		Game g = toGame(x, o);
+		Move m = policy.getMove(g);
+		if (m == null || !g.isLegal(m))
+			throw new IllegalStateException("Policy has no legal move in:" + g);
+
+		int nx = x | 1 << (m.x * 3 + m.y);
+		if (wins(nx))
+			v = terminal(X, mdp.winReward);
+		else if ((nx | o) == Bitboards.FULL)
+			v = terminal(D, mdp.drawReward);
+		else
+			v = afterX(nx, o);
+
+		memo.put(key, v);
+		return v;
+	}
+
+	/**
+	 * The opponent replies to X's move; X receives its reward once the reply is known.
+	 */
+	double[] afterX(int x, int o) {
+		double[] probs = new double[9];
+		opponent.distribution(o, x, probs);
+
+		double[] v = new double[4];
+		for (int c = 0; c < 9; c++) {
+			if (probs[c] == 0.0)
+				continue;
+
+			int no = o | 1 << c;
+			if (wins(no))
+				add(v, probs[c], terminal(O, mdp.loseReward));
+			else if ((x | no) == Bitboards.FULL)
+				add(v, probs[c], terminal(D, mdp.drawReward));
+			else {
+				double[] next = xToMove(x, no);
+				v[X] += probs[c] * next[X];
+				v[O] += probs[c] * next[O];
+				v[D] += probs[c] * next[D];
+				v[R] += probs[c] * (mdp.livingReward + discount * next[R]);
+			}
+		}
+
+		return v;
+	}
+
+	/**
+	 * The opponent's opening move when it starts: no reward is received for it.
+	 */
+	double[] oToMove(int x, int o) {
+		double[] probs = new double[9];
+		opponent.distribution(o, x, probs);
+
+		double[] v = new double[4];
+		for (int c = 0; c < 9; c++)
+			if (probs[c] != 0.0)
+				add(v, probs[c], xToMove(x, o | 1 << c));
+
+		return v;
+	}
+
+	static double[] terminal(int outcome, double reward) {
+		double[] v = new double[4];
+		v[outcome] = 1.0;
+		v[R] = reward;
+		return v;
+	}
+
+	static void add(double[] v, double p, double[] w) {
+		for (int i = 0; i < 4; i++)
+			v[i] += p * w[i];
+	}
+
+	static boolean wins(int cells) {
+		for (int line : Bitboards.WIN_LINES)
+			if ((cells & line) == line)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * @return the game with X on {@code x}, O on {@code o} and X to move
+	 */
+	static Game toGame(int x, int o) {
+		return Game.of(MNK.TIC_TAC_TOE, x, o, 'X');
+	}
+
+}
@@ -1,9 +1,13 @@
 package ticTacToe;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
 
 /**
  * This is a class that defines the environment of a Tic Tac Toe Game: its
@@ -11,6 +15,11 @@ import java.util.List;
  * functionality for playing out a game between two agents, various other useful
  * methods.
  * 
+ * Tic Tac Toe is the default; any other m,n,k game can be played by passing its
+ * {@link MNK} to the constructor. Moves and game states are computed on the
+ * {@code long} bitboards {@link #xs} and {@link #os}, and {@link #getBoard()}
+ * shows the same board as an array of 'X', 'O' and ' '.
+ * 
  * 
  * 
  * 
@@ -36,7 +45,18 @@ public class Game {
 	 */
 	int state = 0;
 
-	char[][] board = new char[3][3];
+	/**
+	 * The shape of the board and the number of marks in a row needed to win
+	 */
+	MNK mnk;
+
+	char[][] board;
+
+	/**
+	 * The cells held by X and by O, see {@link MNK}. Moves keep these in step with
+	 * {@link #board}.
+	 */
+	long xs, os;
 
 	/**
 	 * the X agent
@@ -50,6 +70,35 @@ public class Game {
 
 	Agent whoseTurn;
 
+	/**
+	 * Receives the events of {@link #playOut()}. Prints to the console by default.
+	 */
+	GameListener listener = ConsoleGameListener.INSTANCE;
+
+	/**
+	 * Zobrist keys: a random number for each mark in each cell (indexed by
+	 * {@code x*cols+y} and 0 for 'X', 1 for 'O'), and one for O to move. Seeded with a
+	 * constant so that keys are the same in every run.
+	 */
+	static final long[][] ZOBRIST_CELLS = new long[64][2];
+	static final long ZOBRIST_O_TO_MOVE;
+
+	static {
+		SplittableRandom r = new SplittableRandom(0x7A3E5F1C2B9D4E60L);
+		for (int c = 0; c < 64; c++) {
+			ZOBRIST_CELLS[c][0] = r.nextLong();
+			ZOBRIST_CELLS[c][1] = r.nextLong();
+		}
+		ZOBRIST_O_TO_MOVE = r.nextLong();
+	}
+
+	/**
+	 * The Zobrist key of this game, see {@link #zobristKey()}. Moves update it
+	 * incrementally; code that writes to {@link #board} or {@link #whoseTurn}
+	 * directly must call {@link #boardChanged()} afterwards.
+	 */
+	long zobrist;
+
 	/**
 	 * new game with new X and O agents with null policies
 	 */
@@ -75,7 +124,18 @@ public class Game {
 	 *            either 'X' or 'O'
 	 */
 	public Game(char whoseTurn) {
-		this(new Agent(), new Agent());
+		this(MNK.TIC_TAC_TOE, whoseTurn);
+	}
+
+	/**
+	 * A new m,n,k game with new X and O agents where whoseTurn starts the game.
+	 * 
+	 * @param mnk
+	 * @param whoseTurn
+	 *            either 'X' or 'O'
+	 */
+	public Game(MNK mnk, char whoseTurn) {
+		this(mnk, new Agent(), new Agent());
 		if (whoseTurn != 'X' && whoseTurn != 'O')
 			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
 		else if (whoseTurn == 'X')
@@ -83,6 +143,18 @@ public class Game {
 		else
 			this.whoseTurn = o;
 
+		boardChanged();
+	}
+
+	/**
+	 * New m,n,k game where x plays first
+	 * 
+	 * @param mnk
+	 * @param x
+	 * @param o
+	 */
+	public Game(MNK mnk, Agent x, Agent o) {
+		this(mnk, x, o, x);
 	}
 
 	/**
@@ -93,6 +165,20 @@ public class Game {
 	 * @param whoseTurn
 	 */
 	public Game(Agent x, Agent o, Agent whoseTurn) {
+		this(MNK.TIC_TAC_TOE, x, o, whoseTurn);
+	}
+
+	/**
+	 * New m,n,k game with X and O agents where it's whoseTurn's turn to play.
+	 * 
+	 * @param mnk
+	 * @param x
+	 * @param o
+	 * @param whoseTurn
+	 */
+	public Game(MNK mnk, Agent x, Agent o, Agent whoseTurn) {
+		this.mnk = mnk;
+		this.board = new char[mnk.rows][mnk.cols];
 		this.x = x;
 		x.setName('X');
 
@@ -115,24 +201,30 @@ public class Game {
 		this.x = g.x;
 		this.o = g.o;
 		this.whoseTurn = g.whoseTurn;
+		this.listener = g.listener;
+		this.mnk = g.mnk;
+		this.xs = g.xs;
+		this.os = g.os;
+		this.zobrist = g.zobrist;
 		// WARNING: Currently Agents are not deep copied
 
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				this.board[i][j] = g.board[i][j];
+		this.board = new char[mnk.rows][];
+		for (int i = 0; i < mnk.rows; i++)
+			this.board[i] = g.board[i].clone();
 
 	}
 
 	public void initBoard() {
 		// fill the board with e's (empty cells)
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
+		for (int i = 0; i < mnk.rows; i++)
+			for (int j = 0; j < mnk.cols; j++)
 				board[i][j] = ' ';
 
+		boardChanged();
 	}
 
 	public boolean isLegal(Move m) {
-		if (m.x < 0 || m.x > 2 || m.y < 0 || m.y > 2)
+		if (!mnk.contains(m.x, m.y))
 			return false;
 
 		if (m.who.getName() != whoseTurn.getName()) {
@@ -153,8 +245,8 @@ public class Game {
 	 */
 	public List<Game> getAllSuccessorGames() {
 		List<Game> result = new ArrayList<Game>();
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
+		for (int i = 0; i < mnk.rows; i++)
+			for (int j = 0; j < mnk.cols; j++) {
 				if (board[i][j] == ' ') {
 					Game newGame = null;
 					try {
@@ -175,34 +267,28 @@ public class Game {
 	/**
 	 * A static method to generate all valid game states where it is either X's turn
 	 * or O's turn as specified by {@code xo} argument. NOTE: this method will
-	 * include ALL terminal states in the game.
+	 * include ALL terminal states in the game. Tic Tac Toe only.
 	 * 
 	 * @param xo
 	 *            specifies whose turn it should be in the resulting games.
 	 * @return
 	 */
 	public static List<Game> generateAllValidGames(char xo) {
-		List<Game> result = new ArrayList<Game>();
-		// this is the number of possible game hashes (2222222222 in base 3): 59048 -
-		// not all are valid. Here we only return the valid ones.
-		for (int i = 0; i < 59048; i++) {
-			Game g = inverseHash(i);
-			if (g == null)
-				continue;
-
-			if (g.isValid()) {
-				// System.out.println("for:"+i);
-				// System.out.println("got:\n"+g);
-				// System.out.println("turn:"+g.whoseTurn.getName());
-				// System.out.println("--------");
-				g.evaluateGameState();
-				if (g.whoseTurn.getName() == xo || g.isTerminal())
-					result.add(g);
-			}
-
-		}
+		return generateAllValidGames(MNK.TIC_TAC_TOE, xo);
+	}
 
-		return result;
+	/**
+	 * Collects {@link StateSpace#games}, enumerated in parallel, into a list in
+	 * ascending order of {@link #code()} (i.e. of {@link #hashCode()} on 3x3).
+	 * 
+	 * @param mnk
+	 * @param xo
+	 *            specifies whose turn it should be in the resulting games.
+	 * @return every valid game of {@code mnk} where it is {@code xo}'s turn, and
+	 *         every terminal one
+	 */
+	public static List<Game> generateAllValidGames(MNK mnk, char xo) {
+		return StateSpace.games(mnk, xo).parallel().sorted(Game::compareCodes).collect(Collectors.toList());
 	}
 
 	/**
@@ -216,11 +302,10 @@ public class Game {
 		if (getState() != ONGOING)
 			return possibleMoves;
 
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (getBoard()[i][j] == ' ')
-					possibleMoves.add(new Move(whoseTurn, i, j));
-			}
+		for (long empty = mnk.full & ~(xs | os); empty != 0; empty &= empty - 1) {
+			int cell = Long.numberOfTrailingZeros(empty);
+			possibleMoves.add(new Move(whoseTurn, cell / mnk.cols, cell % mnk.cols));
+		}
 
 		return possibleMoves;
 
@@ -238,25 +323,31 @@ public class Game {
 		if (getState() != ONGOING)
 			return possibleMoves;
 
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (getBoard()[i][j] == ' ')
-					possibleMoves.add(new Move((whoseTurn.getName() == 'X') ? 'O' : 'X', i, j));
-			}
+		char opponent = (whoseTurn.getName() == 'X') ? 'O' : 'X';
+		for (long empty = mnk.full & ~(xs | os); empty != 0; empty &= empty - 1) {
+			int cell = Long.numberOfTrailingZeros(empty);
+			possibleMoves.add(new Move(opponent, cell / mnk.cols, cell % mnk.cols));
+		}
 
 		return possibleMoves;
 
 	}
 
+	/**
+	 * @return the board itself, not a copy. Code that writes marks to it must
+	 *         call {@link #evaluateGameState()} afterwards, which brings the
+	 *         bitboards, the state, the hash and the Zobrist key of this game up
+	 *         to date.
+	 */
 	public char[][] getBoard() {
 		return board;
 	}
 
 	public String toString() {
 		String result = "\n";
-		for (int i = 0; i < 3; i++) {
+		for (int i = 0; i < mnk.rows; i++) {
 			result += "|";
-			for (int j = 0; j < 3; j++) {
+			for (int j = 0; j < mnk.cols; j++) {
 				result += board[i][j] + "|";
 
 			}
@@ -270,104 +361,35 @@ public class Game {
 
 	/**
 	 * Evaluates the game, and sets its state to one of DRAW, ONGOING, X_WIN or
-	 * O_WIN
+	 * O_WIN. The bitboards are first recomputed from the board, so that marks
+	 * written through {@link #getBoard()} are taken into account.
 	 * 
 	 * @return an integer representing the game state
 	 */
 	public int evaluateGameState() {
+		boardChanged();
+		return evaluate();
+	}
 
-		// checking columns
-		if (board[0][0] != ' ' && board[0][0] == board[0][1] && board[0][1] == board[0][2]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[1][0] != ' ' && board[1][0] == board[1][1] && board[1][1] == board[1][2]) {
-			if (board[1][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[2][0] != ' ' && board[2][0] == board[2][1] && board[2][1] == board[2][2]) {
-			if (board[2][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		// checking rows
-
-		if (board[0][0] != ' ' && board[0][0] == board[1][0] && board[1][0] == board[2][0]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[0][1] != ' ' && board[0][1] == board[1][1] && board[1][1] == board[2][1]) {
-			if (board[0][1] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[0][2] != ' ' && board[0][2] == board[1][2] && board[1][2] == board[2][2]) {
-			if (board[0][2] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		// checking diagnols
-
-		if (board[0][0] != ' ' && board[0][0] == board[1][1] && board[1][1] == board[2][2]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
+	/**
+	 * Evaluates the game from its bitboards, which moves keep up to date, see
+	 * {@link #evaluateGameState()}
+	 */
+	int evaluate() {
 
-		if (board[2][0] != ' ' && board[2][0] == board[1][1] && board[1][1] == board[0][2]) {
-			if (board[2][0] == 'X')
+		// the first complete line decides, rows first, then columns and diagonals
+		for (long line : mnk.winLines) {
+			if ((xs & line) == line) {
 				this.state = X_WON;
-			else
+				return this.state;
+			}
+			if ((os & line) == line) {
 				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		boolean spacesLeft = false;
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (board[i][j] == ' ') {
-					spacesLeft = true;
-					break;
-
-				}
+				return this.state;
 			}
+		}
 
-		if (spacesLeft)
+		if ((xs | os) != mnk.full)
 			this.state = ONGOING;
 		else
 			this.state = DRAW;
@@ -377,12 +399,7 @@ public class Game {
 	}
 
 	private int count(char xo) {
-		int count = 0;
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				if (board[i][j] == xo)
-					count++;
-		return count;
+		return Long.bitCount(xo == 'X' ? xs : os);
 	}
 
 	/**
@@ -437,11 +454,15 @@ public class Game {
 		if (whoseTurn == o && m.who.getName() != 'O')
 			throw new IllegalMoveException("it is not o's turn");
 
+		if (!mnk.contains(m.x, m.y))
+			throw new IllegalMoveException("Invalid move. The square is off the board: " + m);
+
 		if (board[m.x][m.y] != ' ')
 			throw new IllegalMoveException("Invalid move. The square is " + m);
 
 		Game copy = clone();
 		copy.board[m.x][m.y] = m.who.getName();
+		copy.place(m);
 		if (m.who.getName() == 'X')
 			copy.whoseTurn = copy.o;
 		else if (m.who.getName() == 'O')
@@ -449,7 +470,7 @@ public class Game {
 		else
 			throw new IllegalArgumentException();
 
-		copy.evaluateGameState();
+		copy.evaluate();
 
 		return copy;
 
@@ -467,6 +488,9 @@ public class Game {
 		if (whoseTurn == o && m.who.getName() != 'O')
 			throw new IllegalMoveException("it is not X's turn");
 
+		if (!mnk.contains(m.x, m.y))
+			throw new IllegalMoveException("Invalid move. The location (" + m.x + "," + m.y + ") is off the board");
+
 		if (board[m.x][m.y] != ' ')
 			throw new IllegalMoveException("Invalid move. The location (" + m.x + "," + m.y + ") is not empty");
 
@@ -478,10 +502,91 @@ public class Game {
 		else
 			throw new IllegalArgumentException();
 
-		this.evaluateGameState();
+		place(m);
+		this.evaluate();
 
 	}
 
+	/**
+	 * Takes back the move m, which must be the last move executed on this game.
+	 * This will change the game. Together with {@link #executeMove(Move)} it lets
+	 * searches walk the game tree without copying games.
+	 * 
+	 * @param m
+	 */
+	public void unmakeMove(Move m) throws IllegalMoveException {
+		if (!mnk.contains(m.x, m.y) || board[m.x][m.y] != m.who.getName())
+			throw new IllegalMoveException("Invalid unmake. The location (" + m.x + "," + m.y + ") does not hold " + m.who.getName());
+
+		if (whoseTurn.getName() == m.who.getName())
+			throw new IllegalMoveException("Invalid unmake. " + m.who.getName() + " has the move");
+
+		board[m.x][m.y] = ' ';
+		whoseTurn = (m.who.getName() == 'X') ? x : o;
+
+		place(m);
+		this.evaluate();
+	}
+
+	/**
+	 * A 64 bit Zobrist key of the board and whose turn it is: the XOR of the keys
+	 * of every mark on the board, and of {@link #ZOBRIST_O_TO_MOVE} if it is O's
+	 * turn. It is updated in constant time by every move, is well distributed in
+	 * all bits, and is the same for the same game in every run, so it suits
+	 * transposition tables and other open addressing caches better than
+	 * {@link #hashCode()}.
+	 * 
+	 * @return the Zobrist key of this game
+	 */
+	public long zobristKey() {
+		return zobrist;
+	}
+
+	/**
+	 * Toggles the mark of m in the bitboards and the Zobrist key, and the side to
+	 * move in the key: makes m if it is not on the bitboards, unmakes it if it is.
+	 */
+	void place(Move m) {
+		int cell = mnk.cell(m.x, m.y);
+		if (m.who.getName() == 'X') {
+			xs ^= 1L << cell;
+			zobrist ^= ZOBRIST_CELLS[cell][0] ^ ZOBRIST_O_TO_MOVE;
+		} else {
+			os ^= 1L << cell;
+			zobrist ^= ZOBRIST_CELLS[cell][1] ^ ZOBRIST_O_TO_MOVE;
+		}
+	}
+
+	/**
+	 * Recomputes the bitboards and {@link #zobrist} from {@link #board} and
+	 * {@link #whoseTurn}, after they were written directly.
+	 */
+	void boardChanged() {
+		xs = 0;
+		os = 0;
+		long key = (whoseTurn == o) ? ZOBRIST_O_TO_MOVE : 0L;
+		for (int i = 0; i < mnk.rows; i++)
+			for (int j = 0; j < mnk.cols; j++) {
+				int cell = mnk.cell(i, j);
+				if (board[i][j] == 'X') {
+					xs |= 1L << cell;
+					key ^= ZOBRIST_CELLS[cell][0];
+				} else if (board[i][j] == 'O') {
+					os |= 1L << cell;
+					key ^= ZOBRIST_CELLS[cell][1];
+				}
+			}
+
+		zobrist = key;
+	}
+
+	/**
+	 * @return the shape of this game
+	 */
+	public MNK getMNK() {
+		return mnk;
+	}
+
 	/**
 	 * Executes move on the current game. Returns the resulting game without
 	 * changing the current one.
@@ -499,44 +604,38 @@ public class Game {
 
 	}
 
-	/**
-	
 	/**
 	 * This method will play out the game to the end using moves from the X and O
 	 * agents. Use this method to test your agents
 	 * 
-	 * Each step is pretty printed.
+	 * Each step is reported to the game's {@link GameListener}, which pretty prints
+	 * it by default.
 	 */
 	public void playOut() throws IllegalMoveException {
 
+		listener.gameStarted(this);
 		while (this.state == ONGOING) {
 
-			Move m = this.whoseTurn.getMove(this);
-			// if (!(this.whoseTurn instanceof ValueIterationAgent))
-			// {
-			// System.out.println("----successors----");
-			// for(Game g: this.getAllSuccessorGames())
-			// {
-			//
-			// ValueIterationAgent a=(ValueIterationAgent)this.x;
-			// System.out.println("Game:"+g);
-			// System.out.println("Game Value="+a.valueFunction.get(g));
-			// }
-			// System.out.println("---------");
-			// }
-
-			System.out.println("Playing move: " + m);
+			Move m = TrainingEvents.getMove(this.whoseTurn, this);
 			executeMove(m);
-			System.out.println(this);
+			listener.movePlayed(this, m);
 
 		}
-		if (this.state == X_WON) {
-			System.out.println("X won!");
-		} else if (this.state == O_WON) {
-			System.out.println("O won!");
-		} else
-			System.out.println("It's a draw.");
+		listener.gameEnded(this);
+
+	}
 
+	public GameListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * @param listener
+	 *            receives the events of this game, use {@link GameListener#NONE}
+	 *            to play silently
+	 */
+	public void setListener(GameListener listener) {
+		this.listener = listener;
 	}
 
 	/**
@@ -558,34 +657,73 @@ public class Game {
 	 * You can use this method to store (e.g. write to file) your value functions or
 	 * policies.
 	 * 
+	 * On other m,n,k boards the number has one digit per cell, see {@link #code()},
+	 * and is folded into an int.
+	 * 
 	 * @return an integer representation of the game
 	 */
 	public int hashCode() {
-		// ' ' ->0
-		// 'X' ->1
-		// 'O' ->2
-		String s = "";
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				switch (board[i][j]) {
-				case 'X':
-					s += "1";
-					break;
-				case 'O':
-					s += "2";
-					break;
-				case ' ':
-					s += "0";
-					break;
-				}
+		long code = code();
+		return mnk == MNK.TIC_TAC_TOE ? (int) code : Long.hashCode(code);
+	}
+
+	/**
+	 * The base three number of {@link #hashCode()}: one digit per cell in row-major
+	 * order, where ' ' maps to 0 'X' maps to 1 'O' maps to 2, followed by 1 if it
+	 * is X's turn or 2 if it is O's. Unique for boards of up to 39 cells.
+	 * 
+	 * @return a long representation of the game
+	 */
+	public long code() {
+		long code = 0;
+		for (int cell = 0; cell < mnk.cells(); cell++)
+			code = code * 3 + ((xs >>> cell & 1) != 0 ? 1 : (os >>> cell & 1) != 0 ? 2 : 0);
 
-			}
 		// also encode whose turn it is. Either 1 or 2 (x or o)
+		return code * 3 + ((whoseTurn == x) ? 1 : 2);
+	}
+
+	/**
+	 * Orders games of the same shape by {@link #code()} without working it out:
+	 * the first cell in which two boards differ is their most significant differing
+	 * digit.
+	 */
+	static int compareCodes(Game a, Game b) {
+		long cells = (a.xs ^ b.xs) | (a.os ^ b.os);
+		if (cells == 0)
+			return Boolean.compare(a.whoseTurn == a.o, b.whoseTurn == b.o);
+
+		long first = cells & -cells;
+		return Integer.compare(digit(a, first), digit(b, first));
+	}
 
-		s += (whoseTurn == x) ? "1" : "2";
+	/**
+	 * @return the digit of {@link #code()} of the cell with bit {@code cell}
+	 */
+	static int digit(Game g, long cell) {
+		return (g.xs & cell) != 0 ? 1 : (g.os & cell) != 0 ? 2 : 0;
+	}
 
-		return Integer.parseInt(s, 3);
+	/**
+	 * @param mnk
+	 * @param xs
+	 *            the cells of X
+	 * @param os
+	 *            the cells of O
+	 * @param whoseTurn
+	 *            either 'X' or 'O'
+	 * @return a game with new agents in this position, with its state evaluated
+	 */
+	public static Game of(MNK mnk, long xs, long os, char whoseTurn) {
+		Game g = new Game(mnk, whoseTurn);
+		for (long cells = xs | os; cells != 0; cells &= cells - 1) {
+			int cell = Long.numberOfTrailingZeros(cells);
+			g.board[cell / mnk.cols][cell % mnk.cols] = (xs & 1L << cell) != 0 ? 'X' : 'O';
+		}
+		g.boardChanged();
+		g.evaluate();
 
+		return g;
 	}
 
 	/**
@@ -594,6 +732,7 @@ public class Game {
 	 * method.
 	 * 
 	 * You can use this method to read your policy or value functions from file.
+	 * Tic Tac Toe only.
 	 * 
 	 * @param hash
 	 * @return the Game corresponding to the hash
@@ -639,6 +778,7 @@ public class Game {
 			}
 		}
 
+		g.boardChanged();
 		return g;
 	}
 
@@ -648,7 +788,8 @@ public class Game {
 		else if (!(other instanceof Game))
 			return false;
 
-		return this.hashCode() == other.hashCode();
+		Game g = (Game) other;
+		return mnk.equals(g.mnk) && xs == g.xs && os == g.os && (whoseTurn == x) == (g.whoseTurn == g.x);
 	}
 
 	public int getState() {
@@ -662,7 +803,11 @@ public class Game {
 
 	public static final String help = " -h this menu" + "\n -x the X agent: -x <pi, vi, random, agg, def, human>"
 			+ "\n -o the O agent: -o <random, agg, def, human>"
-			+ "\n -s the agent that starts the game (x or o): -s <x or o>";
+			+ "\n -s the agent that starts the game (x or o): -s <x or o>"
+			+ "\n -f append the game to a binary game record log: -f <file>"
+			+ "\n -seed seed the agents' randomness, given before -x and -o: -seed <long>"
+			+ "\n -l report the move latency percentiles of both agents: -l"
+			+ "\n -mnk play an m,n,k game, i.e. k in a row on an m by n board, with random, agg, def or human agents: -mnk <m,n,k>";
 
 	// public static void main(String args[]) throws IllegalMoveException
 	// {
@@ -698,8 +843,9 @@ public class Game {
 	 * @param a
 	 * @throws IllegalMoveException of the there is an illegal move by one of
 	 *             the agents. This would just exit the programme.
+	 * @throws IOException if the game record log cannot be written
 	 */
-	public static void main(String a[]) throws IllegalMoveException {
+	public static void main(String a[]) throws IllegalMoveException, IOException {
 		List<String> args = Arrays.asList(a);
 		if (args.contains("-h")) {
 			System.out.println(help);
@@ -709,6 +855,9 @@ public class Game {
 		Agent x = null;
 		Agent o = null;
 		String whoseTurn = null;
+		String log = null;
+		boolean latency = false;
+		MNK mnk = MNK.TIC_TAC_TOE;
 		Iterator<String> iter = args.iterator();
 
 		while (iter.hasNext()) {
@@ -793,6 +942,35 @@ public class Game {
 					return;
 				}
 				break;
+			case "-f":
+				next = iter.next();
+				if (next == null || next.startsWith("-")) {
+					System.out.println("Error: -f should be followed by the game record log file");
+					return;
+				}
+				log = next;
+				break;
+			case "-l":
+				latency = true;
+				break;
+			case "-mnk":
+				next = iter.next();
+				try {
+					mnk = MNK.parse(next);
+				} catch (IllegalArgumentException e) {
+					System.out.println("Error: -mnk should be followed by the board size and line length, e.g. 4,4,4: " + e.getMessage());
+					return;
+				}
+				break;
+			case "-seed":
+				next = iter.next();
+				try {
+					RandomSource.setSeed(Long.parseLong(next));
+				} catch (NumberFormatException e) {
+					System.out.println("Error: -seed should be followed by a number");
+					return;
+				}
+				break;
 
 			}
 
@@ -811,13 +989,39 @@ public class Game {
 			o = new RandomAgent();
 		}
 
+		if (mnk != MNK.TIC_TAC_TOE && (x instanceof ValueIterationAgent || x instanceof PolicyIterationAgent)) {
+			System.out.println("Error: the vi and pi agents only play Tic Tac Toe");
+			return;
+		}
+		if (mnk != MNK.TIC_TAC_TOE && log != null) {
+			System.out.println("Error: game record logs only hold Tic Tac Toe games");
+			return;
+		}
+
+		if (latency) {
+			x = new TimedAgent(x);
+			o = new TimedAgent(o);
+		}
+
 		Game g;
 		if (whoseTurn == null || whoseTurn.equals("x"))
-			g = new Game(x, o);
+			g = new Game(mnk, x, o);
 		else
-			g = new Game(x, o, o);
+			g = new Game(mnk, x, o, o);
+
+		if (log == null) {
+			g.playOut();
+		} else {
+			try (GameRecordWriter writer = new GameRecordWriter(Paths.get(log))) {
+				g.setListener(GameListener.combine(ConsoleGameListener.INSTANCE, writer));
+				g.playOut();
+			}
+		}
 
-		g.playOut();
+		if (latency) {
+			System.out.println(((TimedAgent) x).getHistogram('X'));
+			System.out.println(((TimedAgent) o).getHistogram('O'));
+		}
 
 	}
 
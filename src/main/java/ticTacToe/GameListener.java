@@ -0,0 +1,90 @@
+package ticTacToe;
+
+/**
+ * Receives the events of a game as it is played out: the start of the game, every move, the end of the game, the decisions made by
+ * the heuristic policies and warnings. All methods do nothing by default, so implementations only override what they need.
+ *
+ * A {@link Game} reports to the {@link ConsoleGameListener} unless told otherwise with {@link Game#setListener}; use
+ * {@link #NONE} to play games silently, e.g. in simulation and training loops.
+ *
+ * @author ae187
+ *
+ */
+public interface GameListener {
+
+	/**
+	 * The kind of move chosen by a heuristic policy
+	 */
+	enum Decision {
+		AGGRESSIVE, DEFENSIVE, RANDOM
+	}
+
+	/**
+	 * A listener that ignores every event
+	 */
+	GameListener NONE = new GameListener() {
+	};
+
+	/**
+	 * @return a listener passing every event on to each of {@code listeners}, in order
+	 */
+	static GameListener combine(GameListener... listeners) {
+		return new GameListener() {
+			public void gameStarted(Game g) {
+				for (GameListener l : listeners)
+					l.gameStarted(g);
+			}
+
+			public void movePlayed(Game g, Move m) {
+				for (GameListener l : listeners)
+					l.movePlayed(g, m);
+			}
+
+			public void gameEnded(Game g) {
+				for (GameListener l : listeners)
+					l.gameEnded(g);
+			}
+
+			public void policyDecision(Game g, Move m, Decision d) {
+				for (GameListener l : listeners)
+					l.policyDecision(g, m, d);
+			}
+
+			public void warning(Game g, String message) {
+				for (GameListener l : listeners)
+					l.warning(g, message);
+			}
+		};
+	}
+
+	/**
+	 * Called by {@link Game#playOut()} before the first move is requested.
+	 */
+	default void gameStarted(Game g) {
+	}
+
+	/**
+	 * Called by {@link Game#playOut()} after {@code m} has been executed on {@code g}.
+	 */
+	default void movePlayed(Game g, Move m) {
+	}
+
+	/**
+	 * Called by {@link Game#playOut()} once {@code g} is in a terminal state.
+	 */
+	default void gameEnded(Game g) {
+	}
+
+	/**
+	 * Called by a heuristic policy when it picks move {@code m} in game {@code g}.
+	 */
+	default void policyDecision(Game g, Move m, Decision d) {
+	}
+
+	/**
+	 * Called when something unexpected, but recoverable, happens in game {@code g}.
+	 */
+	default void warning(Game g, String message) {
+	}
+
+}
@@ -0,0 +1,166 @@
+package ticTacToe;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compact, binary record of a finished game of tic-tac-toe ({@link MNK#TIC_TAC_TOE}; larger boards do not fit the format). A
+ * record packs into at most {@link #MAX_SIZE} bytes:
+ * 
+ * <pre>
+ * byte 0:  bit 7    the starting side (0 for X, 1 for O)
+ *          bits 4-5 the final game state ({@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} or {@link Game#DRAW})
+ *          bits 0-3 the number of moves n
+ * byte 1+: the n moves as 4-bit cell indices (x*3+y), two per byte, low nibble first
+ * </pre>
+ * 
+ * Records are self delimiting, so a log is simply one record after another. See {@link GameRecordWriter} and
+ * {@link GameRecordReader}.
+ * 
+ * @author ae187
+ *
+ */
+public class GameRecord {
+
+	/**
+	 * The largest encoded size of a record, in bytes: a header and nine moves.
+	 */
+	public static final int MAX_SIZE = 6;
+
+	char starter = 'X';
+
+	/**
+	 * the cells played, in order
+	 */
+	final byte[] cells = new byte[9];
+
+	int length = 0;
+
+	int state = Game.ONGOING;
+
+	public GameRecord() {
+	}
+
+	/**
+	 * Clears this record for a new game started by {@code starter}
+	 */
+	public void reset(char starter) {
+		if (starter != 'X' && starter != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+
+		this.starter = starter;
+		this.length = 0;
+		this.state = Game.ONGOING;
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if {@code m} is not on a 3x3 board
+	 */
+	public void add(Move m) {
+		if (!MNK.TIC_TAC_TOE.contains(m.x, m.y))
+			throw new IllegalArgumentException("Game records only hold Tic Tac Toe moves: " + m);
+
+		cells[length++] = (byte) (m.x * 3 + m.y);
+	}
+
+	public char getStarter() {
+		return starter;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the state the game ended in
+	 */
+	public int getState() {
+		return state;
+	}
+
+	public void setState(int state) {
+		this.state = state;
+	}
+
+	/**
+	 * @return the i-th move played, as a cell index x*3+y
+	 */
+	public int getCell(int i) {
+		return cells[i];
+	}
+
+	/**
+	 * @return the number of bytes {@link #encode} writes
+	 */
+	public int encodedSize() {
+		return 1 + (length + 1) / 2;
+	}
+
+	/**
+	 * Writes this record at the buffer's position, which must have at least {@link #encodedSize()} bytes remaining.
+	 */
+	public void encode(ByteBuffer buf) {
+		buf.put((byte) ((starter == 'O' ? 0x80 : 0) | (state << 4) | length));
+		for (int i = 0; i < length; i += 2) {
+			int hi = i + 1 < length ? cells[i + 1] : 0;
+			buf.put((byte) (cells[i] | (hi << 4)));
+		}
+	}
+
+	/**
+	 * Reads the record at the buffer's position into {@code r}. Nothing is read if the buffer does not hold the whole record.
+	 * 
+	 * @return true if a whole record was read
+	 * @throws StreamCorruptedException
+	 *             if the header at the buffer's position is not that of a record
+	 */
+	public static boolean decode(ByteBuffer buf, GameRecord r) throws StreamCorruptedException {
+		if (!buf.hasRemaining())
+			return false;
+
+		int header = buf.get(buf.position()) & 0xFF;
+		int length = header & 0x0F;
+		if (length > 9)
+			throw new StreamCorruptedException("Corrupt game record header: " + header);
+		if (buf.remaining() < 1 + (length + 1) / 2)
+			return false;
+
+		buf.get();
+		r.starter = (header & 0x80) != 0 ? 'O' : 'X';
+		r.state = (header >> 4) & 0x03;
+		r.length = length;
+		for (int i = 0; i < length; i += 2) {
+			int b = buf.get() & 0xFF;
+			r.cells[i] = (byte) (b & 0x0F);
+			if (i + 1 < length)
+				r.cells[i + 1] = (byte) (b >> 4);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Replays the recorded moves into a new game between two policy-less agents.
+	 * 
+	 * @return the game in its final state
+	 * @throws IllegalMoveException
+	 *             if the record does not describe a legal game
+	 */
+	public Game toGame() throws IllegalMoveException {
+		Game g = new Game(starter);
+		for (int i = 0; i < length; i++)
+			g.executeMove(g.whoseTurn.getName(), cells[i] / 3, cells[i] % 3);
+
+		return g;
+	}
+
+	public String toString() {
+		String result = starter + ":";
+		for (int i = 0; i < length; i++)
+			result += " " + cells[i];
+
+		return result + " -> " + state;
+	}
+
+}
@@ -0,0 +1,90 @@
+package ticTacToe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the {@link GameRecord}s of a log written by {@link GameRecordWriter}. Use {@link #next(GameRecord)} to scan records
+ * without creating any objects, or iterate to replay each record lazily into a {@link Game}.
+ * 
+ * @author ae187
+ *
+ */
+public class GameRecordReader implements Iterator<Game>, Closeable {
+
+	final FileChannel channel;
+
+	final ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE);
+
+	final GameRecord record = new GameRecord();
+
+	/**
+	 * true if {@link #record} holds a record that has not been returned yet
+	 */
+	boolean pending = false;
+
+	boolean eof = false;
+
+	public GameRecordReader(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		buffer.flip();
+	}
+
+	/**
+	 * Reads the next record into {@code r}.
+	 * 
+	 * @return false at the end of the log
+	 * @throws IOException
+	 *             if the log cannot be read, is corrupt, or ends in the middle of a record
+	 */
+	public boolean next(GameRecord r) throws IOException {
+		while (!GameRecord.decode(buffer, r)) {
+			if (eof) {
+				if (buffer.hasRemaining())
+					throw new IOException("Truncated game record at the end of the log");
+				return false;
+			}
+
+			buffer.compact();
+			eof = channel.read(buffer) < 0;
+			buffer.flip();
+		}
+
+		return true;
+	}
+
+	public boolean hasNext() {
+		try {
+			if (!pending)
+				pending = next(record);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return pending;
+	}
+
+	public Game next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		pending = false;
+		try {
+			return record.toGame();
+		} catch (IllegalMoveException e) {
+			throw new IllegalStateException("Corrupt game record " + record, e);
+		}
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
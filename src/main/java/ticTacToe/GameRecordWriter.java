@@ -0,0 +1,82 @@
+package ticTacToe;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends {@link GameRecord}s to a log file through a buffered {@link FileChannel}. The writer is a {@link GameListener}, so it can
+ * be attached to a {@link Game} or a {@link Tournament} to archive every game played out; each thread records its own game in
+ * progress and finished records are appended under a lock. Only tic-tac-toe games can be recorded, see {@link GameRecord}.
+ * 
+ * @author ae187
+ *
+ */
+public class GameRecordWriter implements GameListener, Flushable, Closeable {
+
+	static final int BUFFER_SIZE = 1 << 16;
+
+	final FileChannel channel;
+
+	final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	final ThreadLocal<GameRecord> current = ThreadLocal.withInitial(GameRecord::new);
+
+	/**
+	 * Opens {@code file} for appending, creating it if needed
+	 */
+	public GameRecordWriter(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	public synchronized void write(GameRecord r) throws IOException {
+		if (buffer.remaining() < GameRecord.MAX_SIZE)
+			flush();
+
+		r.encode(buffer);
+	}
+
+	public synchronized void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+
+		buffer.clear();
+	}
+
+	public synchronized void close() throws IOException {
+		flush();
+		channel.close();
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if {@code g} is not a game of tic-tac-toe
+	 */
+	public void gameStarted(Game g) {
+		if (!g.mnk.equals(MNK.TIC_TAC_TOE))
+			throw new IllegalArgumentException("Game records only hold Tic Tac Toe games, not " + g.mnk);
+
+		current.get().reset(g.whoseTurn.getName());
+	}
+
+	public void movePlayed(Game g, Move m) {
+		current.get().add(m);
+	}
+
+	public void gameEnded(Game g) {
+		GameRecord r = current.get();
+		r.setState(g.getState());
+		try {
+			write(r);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -20,9 +20,15 @@ public class HumanAgent extends Agent {
 	{
 		// show user possible moves.
 		System.out.println("Choose location to put your "+name+" based on the following scheme.");
-		System.out.println("0|1|2\n" +
-				           "3|4|5\n" +
-				           "6|7|8");
+		MNK mnk=g.getMNK();
+		int width=String.valueOf(mnk.cells()-1).length();
+		for (int i=0;i<mnk.rows;i++)
+		{
+			String row="";
+			for (int j=0;j<mnk.cols;j++)
+				row+=(j>0?"|":"")+String.format("%"+width+"d", mnk.cell(i, j));
+			System.out.println(row);
+		}
 		System.out.print("Your move: ");
 		
 		// read in user input. If bad input is specified, allow user to try again. 
@@ -39,15 +45,15 @@ public class HumanAgent extends Agent {
 			return getMove(g);
 		}
 		
-		int x=move/3;
-		int y=move%3;
-		
-		if (x<0 || x>2 || y<0 || y>2)
+		if (move<0 || move>=mnk.cells())
 		{
 			System.out.println("Invalid number chosen. Choose again.");
 			return getMove(g);
 		}
 		
+		int x=move/mnk.cols;
+		int y=move%mnk.cols;
+		
 		Move m=new Move(name, x, y);
 		if (!g.isLegal(m))
 		{
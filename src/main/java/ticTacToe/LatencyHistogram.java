@@ -0,0 +1,112 @@
+package ticTacToe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-bucket, log-linear histogram of latencies in nanoseconds. Every power of two is split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, so percentiles are accurate to within 12.5% over the whole range of a long. Recording is lock free and does not
+ * allocate, so a histogram can be shared by all the threads of a {@link Tournament}.
+ * 
+ * @author ae187
+ *
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BITS = 3;
+
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/**
+	 * values below {@link #SUB_BUCKETS} get a bucket each, then {@link #SUB_BUCKETS} buckets per power of two up to 2^62
+	 */
+	static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	final String name;
+
+	final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param name
+	 *            what is being measured, e.g. the agent type and side
+	 */
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int) Math.max(nanos, 0);
+
+		int exp = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return the largest value that falls into bucket {@code i}
+	 */
+	static long upperBound(int i) {
+		if (i < SUB_BUCKETS)
+			return i;
+
+		int exp = i / SUB_BUCKETS + SUB_BITS - 1;
+		long lower = (long) (SUB_BUCKETS + i % SUB_BUCKETS) << (exp - SUB_BITS);
+		return lower + (1L << (exp - SUB_BITS)) - 1;
+	}
+
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(nanos));
+		long m;
+		while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos))
+			;
+	}
+
+	public long count() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			total += counts.get(i);
+
+		return total;
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * @param p
+	 *            between 0 and 1, e.g. 0.99
+	 * @return an upper bound of the {@code p}-th quantile of the recorded latencies, in nanoseconds; 0 if nothing was recorded
+	 */
+	public long percentile(double p) {
+		long total = count();
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(p * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(upperBound(i), max());
+		}
+
+		return max();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the count, p50, p99, p99.9 and max latencies in microseconds
+	 */
+	public String toString() {
+		return String.format("%s: n=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", name, count(),
+				percentile(0.5) / 1e3, percentile(0.99) / 1e3, percentile(0.999) / 1e3, max() / 1e3);
+	}
+
+}
@@ -0,0 +1,93 @@
+package ticTacToe;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code long} to {@code byte} hash map without boxing, e.g. for policies (the cell to play) or game results keyed by
+ * {@link Game#zobristKey()}. See {@link LongKeyMap}.
+ *
+ * @author ae187
+ *
+ */
+public class LongByteMap extends LongKeyMap {
+
+	ByteBuffer values;
+
+	public LongByteMap() {
+		this(16, false);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries to make room for
+	 * @param offHeap
+	 *            true to keep the table in direct buffers
+	 */
+	public LongByteMap(int expectedSize, boolean offHeap) {
+		super(expectedSize, offHeap);
+	}
+
+	@Override
+	void allocateValues(int n) {
+		values = offHeap ? direct(n, 1) : ByteBuffer.allocate(n);
+	}
+
+	@Override
+	Buffer values() {
+		return values;
+	}
+
+	@Override
+	void moveValue(Buffer old, int from, int to) {
+		values.put(to, ((ByteBuffer) old).get(from));
+	}
+
+	@Override
+	int valueBytes() {
+		return 1;
+	}
+
+	/**
+	 * @param key
+	 * @param missing
+	 *            the value to return if {@code key} is not in the map
+	 * @return the value of {@code key}
+	 */
+	public byte get(long key, byte missing) {
+		int slot = slot(key);
+		return slot < 0 ? missing : values.get(slot);
+	}
+
+	public void put(long key, byte value) {
+		// insert first, it may reallocate the values
+		int slot = insert(key);
+		values.put(slot, value);
+	}
+
+	/**
+	 * Adds {@code delta} to the value of {@code key}, which starts at 0 if the key is new.
+	 * 
+	 * @return the new value
+	 */
+	public byte add(long key, byte delta) {
+		int slot = insert(key);
+		byte value = (byte) (values.get(slot) + delta);
+		values.put(slot, value);
+		return value;
+	}
+
+	/**
+	 * @param slot
+	 *            a slot returned by {@link #next(int)} or {@link #slot(long)}
+	 * @return the value in {@code slot}
+	 */
+	public byte valueAt(int slot) {
+		return values.get(slot);
+	}
+
+	public void setValueAt(int slot, byte value) {
+		values.put(slot, value);
+	}
+
+}
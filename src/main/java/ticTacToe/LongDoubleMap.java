@@ -0,0 +1,93 @@
+package ticTacToe;
+
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+
+/**
+ * A {@code long} to {@code double} hash map without boxing, e.g. for value functions and q-values keyed by
+ * {@link Game#zobristKey()}. See {@link LongKeyMap}.
+ *
+ * @author ae187
+ *
+ */
+public class LongDoubleMap extends LongKeyMap {
+
+	DoubleBuffer values;
+
+	public LongDoubleMap() {
+		this(16, false);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries to make room for
+	 * @param offHeap
+	 *            true to keep the table in direct buffers
+	 */
+	public LongDoubleMap(int expectedSize, boolean offHeap) {
+		super(expectedSize, offHeap);
+	}
+
+	@Override
+	void allocateValues(int n) {
+		values = offHeap ? direct(n, 8).asDoubleBuffer() : DoubleBuffer.allocate(n);
+	}
+
+	@Override
+	Buffer values() {
+		return values;
+	}
+
+	@Override
+	void moveValue(Buffer old, int from, int to) {
+		values.put(to, ((DoubleBuffer) old).get(from));
+	}
+
+	@Override
+	int valueBytes() {
+		return 8;
+	}
+
+	/**
+	 * @param key
+	 * @param missing
+	 *            the value to return if {@code key} is not in the map
+	 * @return the value of {@code key}
+	 */
+	public double get(long key, double missing) {
+		int slot = slot(key);
+		return slot < 0 ? missing : values.get(slot);
+	}
+
+	public void put(long key, double value) {
+		// insert first, it may reallocate the values
+		int slot = insert(key);
+		values.put(slot, value);
+	}
+
+	/**
+	 * Adds {@code delta} to the value of {@code key}, which starts at 0 if the key is new.
+	 * 
+	 * @return the new value
+	 */
+	public double add(long key, double delta) {
+		int slot = insert(key);
+		double value = values.get(slot) + delta;
+		values.put(slot, value);
+		return value;
+	}
+
+	/**
+	 * @param slot
+	 *            a slot returned by {@link #next(int)} or {@link #slot(long)}
+	 * @return the value in {@code slot}
+	 */
+	public double valueAt(int slot) {
+		return values.get(slot);
+	}
+
+	public void setValueAt(int slot, double value) {
+		values.put(slot, value);
+	}
+
+}
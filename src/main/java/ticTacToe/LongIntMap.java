@@ -0,0 +1,93 @@
+package ticTacToe;
+
+import java.nio.Buffer;
+import java.nio.IntBuffer;
+
+/**
+ * A {@code long} to {@code int} hash map without boxing, e.g. for state indices or visit counts keyed by
+ * {@link Game#zobristKey()}. See {@link LongKeyMap}.
+ *
+ * @author ae187
+ *
+ */
+public class LongIntMap extends LongKeyMap {
+
+	IntBuffer values;
+
+	public LongIntMap() {
+		this(16, false);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries to make room for
+	 * @param offHeap
+	 *            true to keep the table in direct buffers
+	 */
+	public LongIntMap(int expectedSize, boolean offHeap) {
+		super(expectedSize, offHeap);
+	}
+
+	@Override
+	void allocateValues(int n) {
+		values = offHeap ? direct(n, 4).asIntBuffer() : IntBuffer.allocate(n);
+	}
+
+	@Override
+	Buffer values() {
+		return values;
+	}
+
+	@Override
+	void moveValue(Buffer old, int from, int to) {
+		values.put(to, ((IntBuffer) old).get(from));
+	}
+
+	@Override
+	int valueBytes() {
+		return 4;
+	}
+
+	/**
+	 * @param key
+	 * @param missing
+	 *            the value to return if {@code key} is not in the map
+	 * @return the value of {@code key}
+	 */
+	public int get(long key, int missing) {
+		int slot = slot(key);
+		return slot < 0 ? missing : values.get(slot);
+	}
+
+	public void put(long key, int value) {
+		// insert first, it may reallocate the values
+		int slot = insert(key);
+		values.put(slot, value);
+	}
+
+	/**
+	 * Adds {@code delta} to the value of {@code key}, which starts at 0 if the key is new.
+	 * 
+	 * @return the new value
+	 */
+	public int add(long key, int delta) {
+		int slot = insert(key);
+		int value = values.get(slot) + delta;
+		values.put(slot, value);
+		return value;
+	}
+
+	/**
+	 * @param slot
+	 *            a slot returned by {@link #next(int)} or {@link #slot(long)}
+	 * @return the value in {@code slot}
+	 */
+	public int valueAt(int slot) {
+		return values.get(slot);
+	}
+
+	public void setValueAt(int slot, int value) {
+		values.put(slot, value);
+	}
+
+}
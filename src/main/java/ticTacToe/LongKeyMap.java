@@ -0,0 +1,277 @@
+package ticTacToe;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * The key half of an open addressing hash map with primitive {@code long} keys, e.g. {@link Game#zobristKey()}s or state indices,
+ * and no boxing. Subclasses add an array of primitive values parallel to the keys: {@link LongDoubleMap}, {@link LongIntMap} and
+ * {@link LongByteMap}.
+ *
+ * Keys are spread by the MurmurHash3 finaliser and placed by linear probing in a power of two table that is doubled when it becomes
+ * half full, so probe sequences stay short even for sequential or otherwise badly distributed keys, and resizing costs an amortised
+ * constant per insertion. Key 0 marks an empty slot, so the value of key 0 lives in one extra slot at the end of the table.
+ *
+ * The table can be kept in direct buffers, outside the Java heap, for maps too large to be comfortably garbage collected. Entries
+ * cannot be removed, only overwritten; use {@link #clear()} to start again.
+ *
+ * Iterate over the entries with {@link #next(int)}, {@link #keyAt(int)} and the subclass's {@code valueAt(int)}:
+ * <pre>
+ * for (int slot = map.next(-1); slot &gt;= 0; slot = map.next(slot))
+ *     use(map.keyAt(slot), map.valueAt(slot));
+ * </pre>
+ *
+ * @author ae187
+ *
+ */
+public abstract class LongKeyMap {
+
+	/**
+	 * The table is doubled when more than this fraction of its slots are used
+	 */
+	static final double LOAD_FACTOR = 0.5;
+
+	/**
+	 * The largest tables on and off heap. A direct buffer holds less than 2^31 bytes, i.e. less than 2^28 longs.
+	 */
+	static final int MAX_CAPACITY = 1 << 30;
+	static final int MAX_OFF_HEAP_CAPACITY = 1 << 27;
+
+	/**
+	 * true if the table is stored in direct buffers
+	 */
+	final boolean offHeap;
+
+	/**
+	 * The keys, with 0 in empty slots, and the slot of key 0 at index {@link #capacity}
+	 */
+	LongBuffer keys;
+
+	int capacity;
+
+	int mask;
+
+	/**
+	 * The number of entries, including key 0
+	 */
+	int size;
+
+	boolean hasZeroKey;
+
+	/**
+	 * The number of entries (other than key 0) above which the table is doubled
+	 */
+	int resizeAt;
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries to make room for, the table grows beyond this if needed
+	 * @param offHeap
+	 *            true to keep the table in direct buffers
+	 */
+	protected LongKeyMap(int expectedSize, boolean offHeap) {
+		this.offHeap = offHeap;
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * @return the smallest power of two table that holds {@code expectedSize} entries without growing
+	 */
+	int capacityFor(int expectedSize) {
+		long slots = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+		if (slots > maxCapacity())
+			throw new IllegalArgumentException("Too many entries for one table: " + expectedSize);
+
+		return Math.max(16, Integer.highestOneBit((int) slots - 1) << 1);
+	}
+
+	int maxCapacity() {
+		return offHeap ? MAX_OFF_HEAP_CAPACITY : MAX_CAPACITY;
+	}
+
+	/**
+	 * MurmurHash3's 64 bit finaliser, so that every key bit affects the slot
+	 */
+	static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * @return a zeroed direct buffer of {@code n} values of {@code width} bytes, in native byte order
+	 */
+	static ByteBuffer direct(int n, int width) {
+		return ByteBuffer.allocateDirect(n * width).order(ByteOrder.nativeOrder());
+	}
+
+	void allocate(int capacity) {
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.resizeAt = (int) (capacity * LOAD_FACTOR);
+		this.keys = offHeap ? direct(capacity + 1, 8).asLongBuffer() : LongBuffer.allocate(capacity + 1);
+		allocateValues(capacity + 1);
+	}
+
+	/**
+	 * Replaces the values with {@code n} zeroes.
+	 */
+	abstract void allocateValues(int n);
+
+	/**
+	 * @return the current values
+	 */
+	abstract Buffer values();
+
+	/**
+	 * Copies the value in slot {@code from} of {@code old}, which was returned by {@link #values()} before the table was reallocated,
+	 * to slot {@code to} of the current values.
+	 */
+	abstract void moveValue(Buffer old, int from, int to);
+
+	/**
+	 * @return the size of one value in bytes
+	 */
+	abstract int valueBytes();
+
+	/**
+	 * @param key
+	 * @return the slot of {@code key}, or -1 if it is not in the map
+	 */
+	public final int slot(long key) {
+		if (key == 0)
+			return hasZeroKey ? capacity : -1;
+
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			long k = keys.get(i);
+			if (k == key)
+				return i;
+			if (k == 0)
+				return -1;
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return the slot of {@code key}, adding it with value 0 if it is not in the map
+	 */
+	final int insert(long key) {
+		if (key == 0) {
+			if (!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			return capacity;
+		}
+
+		int i = hash(key) & mask;
+		for (;; i = (i + 1) & mask) {
+			long k = keys.get(i);
+			if (k == key)
+				return i;
+			if (k == 0)
+				break;
+		}
+
+		if (size - (hasZeroKey ? 1 : 0) >= resizeAt) {
+			grow();
+			return insert(key);
+		}
+
+		keys.put(i, key);
+		size++;
+		return i;
+	}
+
+	/**
+	 * Doubles the table, reinserting every entry in a single pass
+	 */
+	void grow() {
+		if (capacity >= maxCapacity())
+			throw new IllegalStateException("Map is full: " + size + " entries");
+
+		LongBuffer oldKeys = keys;
+		Buffer oldValues = values();
+		int oldCapacity = capacity;
+		allocate(capacity << 1);
+
+		for (int from = 0; from < oldCapacity; from++) {
+			long k = oldKeys.get(from);
+			if (k == 0)
+				continue;
+
+			int to = hash(k) & mask;
+			while (keys.get(to) != 0)
+				to = (to + 1) & mask;
+			keys.put(to, k);
+			moveValue(oldValues, from, to);
+		}
+		moveValue(oldValues, oldCapacity, capacity);
+	}
+
+	/**
+	 * @param key
+	 * @return true if {@code key} is in the map
+	 */
+	public boolean containsKey(long key) {
+		return slot(key) >= 0;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param slot
+	 *            a slot returned by {@link #next(int)} or {@link #slot(long)}
+	 * @return the key in {@code slot}
+	 */
+	public long keyAt(int slot) {
+		return slot == capacity ? 0L : keys.get(slot);
+	}
+
+	/**
+	 * @param slot
+	 *            -1 to start, or the slot of the last entry visited
+	 * @return the slot of the next entry, or -1 if there are no more
+	 */
+	public int next(int slot) {
+		for (int i = slot + 1; i < capacity; i++)
+			if (keys.get(i) != 0)
+				return i;
+
+		return (hasZeroKey && slot < capacity) ? capacity : -1;
+	}
+
+	/**
+	 * Removes every entry and shrinks the table back to its smallest size.
+	 */
+	public void clear() {
+		size = 0;
+		hasZeroKey = false;
+		allocate(capacityFor(0));
+	}
+
+	/**
+	 * @return the number of bytes used by the table, on or off heap
+	 */
+	public long footprint() {
+		return (long) (capacity + 1) * (8 + valueBytes());
+	}
+
+	/**
+	 * @return true if the table is stored in direct buffers
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+}
@@ -0,0 +1,182 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The shape of an m,n,k game: a board of {@link #rows} by {@link #cols} cells on which the first player to get {@link #k} marks in
+ * a row, column or diagonal wins. Tic Tac Toe is {@link #TIC_TAC_TOE}, 3,3,3.
+ *
+ * Games keep the cells of each player as a {@code long} bitboard in which cell (x,y) is bit {@code x*cols+y}, so boards have at most
+ * 64 cells and sides of at most {@value #MAX_DIMENSION}. Every winning line is precomputed as a mask of such bits.
+ *
+ * @author ae187
+ *
+ */
+public final class MNK {
+
+	/**
+	 * The longest side of a board
+	 */
+	public static final int MAX_DIMENSION = 8;
+
+	/**
+	 * The default 3x3 board with 3 in a row
+	 */
+	public static final MNK TIC_TAC_TOE = new MNK(3, 3, 3);
+
+	public final int rows;
+
+	public final int cols;
+
+	/**
+	 * The number of marks in a line needed to win
+	 */
+	public final int k;
+
+	/**
+	 * All the cells of the board
+	 */
+	final long full;
+
+	/**
+	 * Every winning line, i.e. every k cells in a row, column or diagonal: all the rows first, then the columns, the diagonals and
+	 * the anti-diagonals, each from the top left.
+	 */
+	final long[] winLines;
+
+	private MNK(int rows, int cols, int k) {
+		if (rows < 1 || cols < 1 || rows > MAX_DIMENSION || cols > MAX_DIMENSION)
+			throw new IllegalArgumentException("Board sides must be between 1 and " + MAX_DIMENSION + ": " + rows + "x" + cols);
+		if (k < 1 || k > Math.max(rows, cols))
+			throw new IllegalArgumentException("Cannot get " + k + " in a row on a " + rows + "x" + cols + " board");
+
+		this.rows = rows;
+		this.cols = cols;
+		this.k = k;
+		this.full = rows * cols == 64 ? -1L : (1L << rows * cols) - 1;
+
+		List<Long> lines = new ArrayList<Long>();
+		int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+		for (int[] d : directions)
+			for (int x = 0; x < rows; x++)
+				for (int y = 0; y < cols; y++) {
+					int endX = x + (k - 1) * d[0], endY = y + (k - 1) * d[1];
+					if (endX < 0 || endX >= rows || endY < 0 || endY >= cols)
+						continue;
+
+					long line = 0;
+					for (int i = 0; i < k; i++)
+						line |= 1L << cell(x + i * d[0], y + i * d[1]);
+					if (!lines.contains(line))
+						lines.add(line);
+				}
+
+		this.winLines = new long[lines.size()];
+		for (int i = 0; i < winLines.length; i++)
+			winLines[i] = lines.get(i);
+	}
+
+	/**
+	 * @return the game with these dimensions, {@link #TIC_TAC_TOE} for 3,3,3
+	 */
+	public static MNK of(int rows, int cols, int k) {
+		if (rows == 3 && cols == 3 && k == 3)
+			return TIC_TAC_TOE;
+
+		return new MNK(rows, cols, k);
+	}
+
+	/**
+	 * @param s
+	 *            "m,n,k", e.g. "4,4,4"
+	 * @return the game with those dimensions
+	 */
+	public static MNK parse(String s) {
+		String[] fields = s.split(",");
+		if (fields.length != 3)
+			throw new IllegalArgumentException("Expected m,n,k but got " + s);
+
+		return of(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()), Integer.parseInt(fields[2].trim()));
+	}
+
+	/**
+	 * @return the number of cells
+	 */
+	public int cells() {
+		return rows * cols;
+	}
+
+	/**
+	 * @return the bit of cell (x,y)
+	 */
+	public int cell(int x, int y) {
+		return x * cols + y;
+	}
+
+	/**
+	 * @return true if (x,y) is on the board
+	 */
+	public boolean contains(int x, int y) {
+		return x >= 0 && x < rows && y >= 0 && y < cols;
+	}
+
+	/**
+	 * @return the number of winning lines
+	 */
+	public int lines() {
+		return winLines.length;
+	}
+
+	/**
+	 * @param mine
+	 *            the cells of one player
+	 * @return true if {@code mine} covers a winning line
+	 */
+	public boolean isWin(long mine) {
+		for (long line : winLines)
+			if ((mine & line) == line)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * @param mine
+	 *            the cells of one player
+	 * @param empty
+	 *            the empty cells
+	 * @return the empty cells that would complete one of the player's lines
+	 */
+	public long winningCells(long mine, long empty) {
+		if (this == TIC_TAC_TOE)
+			return Bitboards.winningCells((int) mine, (int) empty);
+
+		long cells = 0;
+		for (long line : winLines) {
+			long missing = line & ~mine;
+			if ((missing & missing - 1) == 0)
+				cells |= missing;
+		}
+		return cells & empty;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof MNK))
+			return false;
+
+		MNK o = (MNK) other;
+		return rows == o.rows && cols == o.cols && k == o.k;
+	}
+
+	@Override
+	public int hashCode() {
+		return (rows * 31 + cols) * 31 + k;
+	}
+
+	public String toString() {
+		return rows + "," + cols + "," + k;
+	}
+
+}
@@ -0,0 +1,92 @@
+package ticTacToe;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed length array of primitive values kept in a memory-mapped file rather than on the heap, so it can be larger than the heap
+ * (or than memory: the operating system pages it in and out). A single mapping holds less than 2GB, so the file is mapped in
+ * segments of {@value #SEGMENT_BYTES} bytes; values never straddle two segments because their width divides the segment size.
+ *
+ * The values are read and written in native byte order, as by {@link LongKeyMap}'s direct buffers.
+ *
+ * @author ae187
+ *
+ */
+final class MappedArray {
+
+	static final int SEGMENT_SHIFT = 30;
+
+	static final int SEGMENT_BYTES = 1 << SEGMENT_SHIFT;
+
+	static final long SEGMENT_MASK = SEGMENT_BYTES - 1;
+
+	final Path file;
+
+	final long length;
+
+	/**
+	 * The size of a value in bytes: 1, 2, 4 or 8
+	 */
+	final int width;
+
+	final MappedByteBuffer[] segments;
+
+	/**
+	 * Creates (or truncates) {@code file} and maps {@code length} zeroes of {@code width} bytes.
+	 */
+	MappedArray(Path file, long length, int width) throws IOException {
+		this.file = file;
+		this.length = length;
+		this.width = width;
+
+		long bytes = length * width;
+		this.segments = new MappedByteBuffer[(int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			for (int i = 0; i < segments.length; i++) {
+				long position = (long) i << SEGMENT_SHIFT;
+				segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(SEGMENT_BYTES, bytes - position));
+				segments[i].order(ByteOrder.nativeOrder());
+			}
+		}
+	}
+
+	double getDouble(long i) {
+		long b = i * 8;
+		return segments[(int) (b >>> SEGMENT_SHIFT)].getDouble((int) (b & SEGMENT_MASK));
+	}
+
+	void putDouble(long i, double value) {
+		long b = i * 8;
+		segments[(int) (b >>> SEGMENT_SHIFT)].putDouble((int) (b & SEGMENT_MASK), value);
+	}
+
+	byte get(long i) {
+		return segments[(int) (i >>> SEGMENT_SHIFT)].get((int) (i & SEGMENT_MASK));
+	}
+
+	void put(long i, byte value) {
+		segments[(int) (i >>> SEGMENT_SHIFT)].put((int) (i & SEGMENT_MASK), value);
+	}
+
+	/**
+	 * Writes any changes through to the file.
+	 */
+	void force() {
+		for (MappedByteBuffer segment : segments)
+			segment.force();
+	}
+
+	/**
+	 * @return the size of the file in bytes
+	 */
+	long footprint() {
+		return length * width;
+	}
+
+}
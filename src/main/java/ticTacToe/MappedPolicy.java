@@ -0,0 +1,48 @@
+package ticTacToe;
+
+/**
+ * A policy kept in a memory-mapped file of one byte per position of a {@link StateIndex}: 0 where the policy has no move, otherwise
+ * one more than the bit of the cell to play (see {@link MNK#cell}). Written by {@link OutOfCoreValueIterationAgent}, for boards
+ * with too many states for a {@link Policy}'s map.
+ *
+ * @author ae187
+ *
+ */
+public class MappedPolicy extends Policy {
+
+	final StateIndex index;
+
+	final MappedArray moves;
+
+	MappedPolicy(StateIndex index, MappedArray moves) {
+		this.index = index;
+		this.moves = moves;
+	}
+
+	@Override
+	public Move getMove(Game g) {
+		if (!g.getMNK().equals(index.mnk()) || !index.contains(g.xs, g.os))
+			return null;
+
+		int move = moves.get(index.rank(g));
+		if (move == 0)
+			return null;
+
+		MNK mnk = index.mnk();
+		return new Move(g.whoseTurn.getName(), (move - 1) / mnk.cols, (move - 1) % mnk.cols);
+	}
+
+	/**
+	 * @return the number of positions this policy has a move for, counted by reading the whole file
+	 */
+	@Override
+	public int size() {
+		long size = 0;
+		for (long i = 0; i < moves.length; i++)
+			if (moves.get(i) != 0)
+				size++;
+
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+}
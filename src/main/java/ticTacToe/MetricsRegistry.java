@@ -0,0 +1,237 @@
+package ticTacToe;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * A named set of training metrics - counters, gauges and timers - published as a JMX MBean under
+ * {@code ticTacToe:type=Training,name=<name>}, so long training runs can be watched with standard JVM tooling (jconsole,
+ * VisualVM, JMX exporters).
+ * 
+ * Registries are shared by all agents of the same kind, see {@link #get}. Every metric is safe to update from several threads and
+ * shows up as a read-only attribute: a counter as its count, a gauge as its last value, and a timer as {@code <name>Count},
+ * {@code <name>TotalMillis} and {@code <name>MaxMillis}.
+ * 
+ * @author ae187
+ *
+ */
+public class MetricsRegistry implements DynamicMBean {
+
+	/**
+	 * A monotonically increasing count
+	 */
+	public static class Counter {
+		final LongAdder count = new LongAdder();
+
+		public void increment() {
+			count.increment();
+		}
+
+		public void add(long n) {
+			count.add(n);
+		}
+
+		public long get() {
+			return count.sum();
+		}
+	}
+
+	/**
+	 * The last value set
+	 */
+	public static class Gauge {
+		volatile double value;
+
+		public void set(double value) {
+			this.value = value;
+		}
+
+		public double get() {
+			return value;
+		}
+	}
+
+	/**
+	 * The number, total and maximum duration of a repeated phase
+	 */
+	public static class Timer {
+		final LongAdder count = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final AtomicLong maxNanos = new AtomicLong();
+
+		/**
+		 * @return a start time to pass to {@link #stop}
+		 */
+		public long start() {
+			return System.nanoTime();
+		}
+
+		/**
+		 * Records the time elapsed since {@code start}
+		 */
+		public void stop(long start) {
+			long nanos = System.nanoTime() - start;
+			count.increment();
+			totalNanos.add(nanos);
+			long max;
+			while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos))
+				;
+		}
+	}
+
+	static final Map<String, MetricsRegistry> registries = new ConcurrentHashMap<String, MetricsRegistry>();
+
+	final String name;
+
+	/**
+	 * metric name to counter, gauge or timer
+	 */
+	final Map<String, Object> metrics = new LinkedHashMap<String, Object>();
+
+	/**
+	 * attribute name to value, in the order the metrics were created
+	 */
+	final Map<String, DoubleSupplier> attributes = new LinkedHashMap<String, DoubleSupplier>();
+
+	MetricsRegistry(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the registry called {@code name}, creating and publishing it on the platform MBean server the first time
+	 */
+	public static MetricsRegistry get(String name) {
+		return registries.computeIfAbsent(name, n -> {
+			MetricsRegistry r = new MetricsRegistry(n);
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(r,
+						new ObjectName("ticTacToe:type=Training,name=" + ObjectName.quote(n)));
+			} catch (JMException e) {
+				// metrics are still collected, just not visible over JMX
+				System.err.println("Could not publish metrics " + n + " over JMX: " + e);
+			}
+			return r;
+		});
+	}
+
+	/**
+	 * @return the counter called {@code name}, created the first time it is asked for
+	 */
+	public synchronized Counter counter(String name) {
+		Counter c = (Counter) metrics.get(name);
+		if (c == null) {
+			Counter created = c = new Counter();
+			metrics.put(name, c);
+			attributes.put(name, () -> created.get());
+		}
+
+		return c;
+	}
+
+	/**
+	 * @return the gauge called {@code name}, created the first time it is asked for
+	 */
+	public synchronized Gauge gauge(String name) {
+		Gauge g = (Gauge) metrics.get(name);
+		if (g == null) {
+			Gauge created = g = new Gauge();
+			metrics.put(name, g);
+			attributes.put(name, () -> created.get());
+		}
+
+		return g;
+	}
+
+	/**
+	 * @return the timer called {@code name}, created the first time it is asked for
+	 */
+	public synchronized Timer timer(String name) {
+		Timer t = (Timer) metrics.get(name);
+		if (t == null) {
+			Timer created = t = new Timer();
+			metrics.put(name, t);
+			attributes.put(name + "Count", () -> created.count.sum());
+			attributes.put(name + "TotalMillis", () -> created.totalNanos.sum() / 1e6);
+			attributes.put(name + "MaxMillis", () -> created.maxNanos.get() / 1e6);
+		}
+
+		return t;
+	}
+
+	/**
+	 * @return every metric's current value, by attribute name
+	 */
+	public synchronized Map<String, Double> snapshot() {
+		Map<String, Double> result = new LinkedHashMap<String, Double>();
+		for (Map.Entry<String, DoubleSupplier> e : attributes.entrySet())
+			result.put(e.getKey(), e.getValue().getAsDouble());
+
+		return result;
+	}
+
+	public String toString() {
+		return name + " " + snapshot();
+	}
+
+	public synchronized Object getAttribute(String attribute) throws AttributeNotFoundException {
+		DoubleSupplier s = attributes.get(attribute);
+		if (s == null)
+			throw new AttributeNotFoundException(attribute);
+
+		return s.getAsDouble();
+	}
+
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Training metrics are read only");
+	}
+
+	public synchronized AttributeList getAttributes(String[] names) {
+		AttributeList list = new AttributeList();
+		for (String n : names) {
+			DoubleSupplier s = attributes.get(n);
+			if (s != null)
+				list.add(new Attribute(n, s.getAsDouble()));
+		}
+
+		return list;
+	}
+
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	/**
+	 * @throws ReflectionException
+	 *             always, as the metrics have no operations
+	 */
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	public synchronized MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> infos = new ArrayList<MBeanAttributeInfo>();
+		for (String n : attributes.keySet())
+			infos.add(new MBeanAttributeInfo(n, "double", n, true, false, false));
+
+		return new MBeanInfo(getClass().getName(), "Training metrics of " + name,
+				infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+	}
+
+}
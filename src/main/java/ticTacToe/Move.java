@@ -2,6 +2,8 @@ package ticTacToe;
 
 /**
  * A move in the Tic-Tac-Toe game. If the game is modelled as an MDP, a Move is essentially an MDP Action.
+ * 
+ * Coordinates are checked against the largest board, see {@link MNK}; {@link Game#isLegal(Move)} checks them against the game's own.
  * @author ae187
  *
  */
@@ -22,7 +24,7 @@ public class Move {
 		this.who=new Agent();
 		this.who.setName(who);
 		
-		if (x<0 || x>2 || y<0 || y>2)
+		if (x<0 || x>=MNK.MAX_DIMENSION || y<0 || y>=MNK.MAX_DIMENSION)
 			throw new IllegalArgumentException("Invalid x or y coordinates");
 		this.x=x;
 		this.y=y;
@@ -36,7 +38,7 @@ public class Move {
 		
 		this.who=who;
 		
-		if (x<0 || x>2 || y<0 || y>2)
+		if (x<0 || x>=MNK.MAX_DIMENSION || y<0 || y>=MNK.MAX_DIMENSION)
 			throw new IllegalArgumentException("Invalid x or y coordinates");
 		this.x=x;
 		this.y=y;
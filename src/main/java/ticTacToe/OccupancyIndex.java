@@ -0,0 +1,107 @@
+package ticTacToe;
+
+/**
+ * A {@link StateIndex} of every way of filling the board with X, O and empty cells, i.e. of all {@code 3^cells} codes of
+ * {@link Game#hashCode()}, reordered to be layer-major.
+ *
+ * Within a layer, positions are ordered by the set of occupied cells and then by which of those cells hold X: the index of a
+ * position with {@code n} marks is {@code layerStart(n) + occupancyRank * 2^n + xPattern}, where {@code occupancyRank} is the rank
+ * of the occupied cells among the sets of {@code n} cells and {@code xPattern} is X's cells gathered out of the occupied ones by
+ * {@link Bitboards#compress}. The occupancy ranks come from a table with an entry per subset of the board, so boards are limited to
+ * {@value #MAX_CELLS} cells.
+ *
+ * @author ae187
+ *
+ */
+public class OccupancyIndex implements StateIndex {
+
+	/**
+	 * The most cells a board can have, keeping the occupancy tables under 2^24 entries each
+	 */
+	public static final int MAX_CELLS = 24;
+
+	final MNK mnk;
+
+	final int cells;
+
+	/**
+	 * For every set of cells, its rank among the sets of the same size in ascending order
+	 */
+	final int[] occupancyRank;
+
+	/**
+	 * Every set of cells, ordered by size then ascending, i.e. the inverse of {@link #occupancyRank}
+	 */
+	final int[] occupancies;
+
+	/**
+	 * The position in {@link #occupancies} of the first set of each size
+	 */
+	final int[] occupancyStart;
+
+	final long[] layerStart;
+
+	public OccupancyIndex(MNK mnk) {
+		if (mnk.cells() > MAX_CELLS)
+			throw new IllegalArgumentException("Too many cells to index by occupancy: " + mnk);
+
+		this.mnk = mnk;
+		this.cells = mnk.cells();
+		this.occupancyRank = new int[1 << cells];
+		this.occupancies = new int[1 << cells];
+		this.occupancyStart = new int[cells + 2];
+		this.layerStart = new long[cells + 2];
+
+		int[] counts = new int[cells + 1];
+		for (int occupied = 0; occupied < 1 << cells; occupied++)
+			occupancyRank[occupied] = counts[Integer.bitCount(occupied)]++;
+
+		for (int n = 0; n <= cells; n++) {
+			occupancyStart[n + 1] = occupancyStart[n] + counts[n];
+			layerStart[n + 1] = layerStart[n] + ((long) counts[n] << n);
+		}
+
+		for (int occupied = 0; occupied < 1 << cells; occupied++)
+			occupancies[occupancyStart[Integer.bitCount(occupied)] + occupancyRank[occupied]] = occupied;
+	}
+
+	@Override
+	public MNK mnk() {
+		return mnk;
+	}
+
+	@Override
+	public long size() {
+		return layerStart[cells + 1];
+	}
+
+	@Override
+	public long layerStart(int n) {
+		return layerStart[n];
+	}
+
+	@Override
+	public boolean contains(long xs, long os) {
+		return (xs & os) == 0 && ((xs | os) & ~mnk.full) == 0;
+	}
+
+	@Override
+	public long rank(long xs, long os) {
+		long occupied = xs | os;
+		int n = Long.bitCount(occupied);
+		return layerStart[n] + ((long) occupancyRank[(int) occupied] << n) + Bitboards.compress(xs, occupied);
+	}
+
+	@Override
+	public void unrank(long index, long[] stones) {
+		int n = 0;
+		while (index >= layerStart[n + 1])
+			n++;
+
+		long r = index - layerStart[n];
+		long occupied = occupancies[occupancyStart[n] + (int) (r >>> n)];
+		stones[0] = Bitboards.expand(r & (1L << n) - 1, occupied);
+		stones[1] = occupied & ~stones[0];
+	}
+
+}
@@ -0,0 +1,90 @@
+package ticTacToe;
+
+/**
+ * Describes a stochastic opponent by the probability distribution over the moves it plays, rather than by sampling them. Used by
+ * {@link ExactEvaluator} to compute exact outcome probabilities.
+ * 
+ * Positions are given as {@link Bitboards} masks.
+ * 
+ * @author ae187
+ *
+ */
+public interface OpponentModel {
+
+	/**
+	 * Fills {@code probs} so that {@code probs[c]} is the probability that the opponent plays in cell c (x*3+y).
+	 * 
+	 * @param own
+	 *            the cells owned by the opponent
+	 * @param other
+	 *            the cells owned by the player it is up against
+	 * @param probs
+	 *            nine probabilities, overwritten
+	 */
+	void distribution(int own, int other, double[] probs);
+
+	/**
+	 * Plays uniformly at random, like {@link RandomPolicy}
+	 */
+	OpponentModel UNIFORM = (own, other, probs) -> uniform(Bitboards.FULL & ~(own | other), probs);
+
+	/**
+	 * Plays its first winning move if it has one, uniformly at random otherwise, like {@link AggressivePolicy}
+	 */
+	OpponentModel AGGRESSIVE = (own, other, probs) -> {
+		int empty = Bitboards.FULL & ~(own | other);
+		int wins = Bitboards.winningCells(own, empty);
+		if (wins != 0)
+			single(Integer.numberOfTrailingZeros(wins), probs);
+		else
+			uniform(empty, probs);
+	};
+
+	/**
+	 * Blocks the first of its opponent's winning moves if there is one, plays uniformly at random otherwise, like
+	 * {@link DefensivePolicy}
+	 */
+	OpponentModel DEFENSIVE = (own, other, probs) -> {
+		int empty = Bitboards.FULL & ~(own | other);
+		int threats = Bitboards.winningCells(other, empty);
+		if (threats != 0)
+			single(Integer.numberOfTrailingZeros(threats), probs);
+		else
+			uniform(empty, probs);
+	};
+
+	/**
+	 * Spreads the probability evenly over the {@code cells}
+	 */
+	static void uniform(int cells, double[] probs) {
+		double p = 1.0 / Integer.bitCount(cells);
+		for (int c = 0; c < 9; c++)
+			probs[c] = (cells & (1 << c)) != 0 ? p : 0.0;
+	}
+
+	/**
+	 * Puts all the probability on {@code cell}
+	 */
+	static void single(int cell, double[] probs) {
+		for (int c = 0; c < 9; c++)
+			probs[c] = c == cell ? 1.0 : 0.0;
+	}
+
+	/**
+	 * @param name
+	 *            random, agg or def, as on the command lines
+	 */
+	static OpponentModel forName(String name) {
+		switch (name) {
+		case "random":
+			return UNIFORM;
+		case "agg":
+			return AGGRESSIVE;
+		case "def":
+			return DEFENSIVE;
+		default:
+			throw new IllegalArgumentException("No opponent model for: " + name);
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+package ticTacToe;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A Value Iteration Agent for m,n,k games with too many states to keep on the heap, e.g. 4,4,4. It solves the same MDP as
+ * {@link ValueIterationAgent}, with the rewards of a {@link TTTMDP} and a uniformly random opponent, but keeps the value and the
+ * policy move of every position in memory-mapped files indexed by a {@link StateIndex}, and works on bitboards instead of
+ * {@link Game} objects.
+ *
+ * Each sweep walks the layers of the index from the fullest board down to the empty one and streams through each layer's part of
+ * the files in index order. Backing up a position with {@code n} marks reads the values of positions with {@code n+2} marks, which
+ * this sweep has already updated, so the first sweep reaches the exact values and the second only confirms it: sweeps stop once
+ * nothing changes by more than {@link #tolerance}, or after {@link #k} of them.
+ *
+ * @author ae187
+ *
+ */
+public class OutOfCoreValueIterationAgent extends Agent
+{
+	final StateIndex index;
+
+	final MNK mnk;
+
+	/**
+	 * The directory holding the {@code values} and {@code moves} files
+	 */
+	final Path directory;
+
+	/**
+	 * The MDP model, whose rewards are used
+	 */
+	TTTMDP mdp = new TTTMDP();
+
+	double discount = 0.9;
+
+	/**
+	 * The largest number of sweeps
+	 */
+	int k = 10;
+
+	/**
+	 * Sweeps stop once no value changes by more than this
+	 */
+	double tolerance = 0.0;
+
+	/**
+	 * The value of every position, 0 for positions that are not X's turn or are terminal
+	 */
+	MappedArray values;
+
+	/**
+	 * The best move in every position, see {@link MappedPolicy}
+	 */
+	MappedArray moves;
+
+	/**
+	 * The number of transitions summed over by {@link #backup} so far
+	 */
+	long transitions;
+
+	static final MetricsRegistry metrics = MetricsRegistry.get("OutOfCoreValueIterationAgent");
+	static final MetricsRegistry.Counter sweeps = metrics.counter("Sweeps");
+	static final MetricsRegistry.Gauge maxResidual = metrics.gauge("MaxResidual");
+	static final MetricsRegistry.Counter statesProcessed = metrics.counter("StatesProcessed");
+	static final MetricsRegistry.Counter transitionsProcessed = metrics.counter("TransitionsProcessed");
+	static final MetricsRegistry.Timer iterateTimer = metrics.timer("Iterate");
+
+	/**
+	 * Solves {@code mnk} with the default rewards and a discount of 0.9, keeping the files in {@code directory}
+	 */
+	public OutOfCoreValueIterationAgent(MNK mnk, Path directory) throws IOException
+	{
+		this(CombinatorialIndex.xToMove(mnk), directory, new TTTMDP(), 0.9);
+	}
+
+	/**
+	 * @param index
+	 *            the ranking of the positions to solve
+	 * @param directory
+	 *            where to keep the {@code values} and {@code moves} files, created if need be; existing files are overwritten
+	 * @param mdp
+	 *            the rewards
+	 * @param discountFactor
+	 */
+	public OutOfCoreValueIterationAgent(StateIndex index, Path directory, TTTMDP mdp, double discountFactor) throws IOException
+	{
+		this.index = index;
+		this.mnk = index.mnk();
+		this.directory = directory;
+		this.mdp = mdp;
+		this.discount = discountFactor;
+		initValues();
+		train();
+	}
+
+	/**
+	 * Maps the files, with every value 0 and no moves.
+	 */
+	public void initValues() throws IOException
+	{
+		Files.createDirectories(directory);
+		values = new MappedArray(directory.resolve("values"), index.size(), 8);
+		moves = new MappedArray(directory.resolve("moves"), index.size(), 1);
+	}
+
+	/**
+	 * Performs sweeps until the values stop changing, or {@link #k} sweeps, storing the best move found for each position as it goes.
+	 */
+	public void iterate()
+	{
+		long start = iterateTimer.start();
+		long[] stones = new long[2];
+
+		for (int i = 0; i < this.k; i++) {
+			double residual = 0.0;
+			long states = 0;
+			transitions = 0;
+			TrainingEvents.ValueIterationSweep event = new TrainingEvents.ValueIterationSweep();
+			event.begin();
+
+			for (int n = mnk.cells(); n >= 0; n--) {
+				for (long s = index.layerStart(n); s < index.layerStart(n + 1); s++) {
+					index.unrank(s, stones);
+					long xs = stones[0], os = stones[1];
+					if (!isXToMove(xs, os) || isTerminal(xs, os))
+						continue;
+
+					double stateValue = -Double.MAX_VALUE;
+					int best = 0;
+					for (long free = mnk.full & ~(xs | os); free != 0; free &= free - 1) {
+						int cell = Long.numberOfTrailingZeros(free);
+						double sum = backup(xs | 1L << cell, os);
+
+						// ties go to the last best move, as in ValueIterationAgent#extractPolicy
+						if (sum >= stateValue) {
+							stateValue = sum;
+							best = cell + 1;
+						}
+					}
+
+					residual = Math.max(residual, Math.abs(values.getDouble(s) - stateValue));
+					values.putDouble(s, stateValue);
+					moves.put(s, (byte) best);
+					states++;
+				}
+			}
+
+			sweeps.increment();
+			maxResidual.set(residual);
+			statesProcessed.add(states);
+			transitionsProcessed.add(transitions);
+			if (event.shouldCommit()) {
+				event.states = states;
+				event.transitions = transitions;
+				event.residual = residual;
+				event.commit();
+			}
+
+			if (residual <= tolerance)
+				break;
+		}
+
+		values.force();
+		moves.force();
+		iterateTimer.stop(start);
+	}
+
+	/**
+	 * @param xs
+	 *            X's cells after its move
+	 * @param os
+	 *            O's cells
+	 * @return the expected reward plus discounted value of X's move, as summed over {@link TTTMDP#generateTransitions}
+	 */
+	double backup(long xs, long os)
+	{
+		long free = mnk.full & ~(xs | os);
+		transitions += Math.max(1, Long.bitCount(free));
+		if (mnk.isWin(xs))
+			return mdp.winReward;
+		if (free == 0)
+			return mdp.drawReward;
+
+		double prob = (double) 1 / Long.bitCount(free);
+		double sum = 0.0;
+		for (; free != 0; free &= free - 1) {
+			long next = os | (free & -free);
+			if (mnk.isWin(next))
+				sum += prob * mdp.loseReward;
+			else if ((xs | next) == mnk.full)
+				sum += prob * mdp.drawReward;
+			else
+				sum += prob * (mdp.livingReward + discount * values.getDouble(index.rank(xs, next)));
+		}
+		return sum;
+	}
+
+	/**
+	 * @return true if it is X's turn, whether X or O started
+	 */
+	static boolean isXToMove(long xs, long os)
+	{
+		int turn = Long.bitCount(os) - Long.bitCount(xs);
+		return turn == 0 || turn == 1;
+	}
+
+	boolean isTerminal(long xs, long os)
+	{
+		return mnk.isWin(xs) || mnk.isWin(os) || (xs | os) == mnk.full;
+	}
+
+	/**
+	 * @param g
+	 * @return the value of {@code g}, which should be X's turn
+	 */
+	public double value(Game g)
+	{
+		return values.getDouble(index.rank(g));
+	}
+
+	/**
+	 * @return the policy backed by the {@code moves} file
+	 */
+	public Policy extractPolicy()
+	{
+		return new MappedPolicy(index, moves);
+	}
+
+	public void train()
+	{
+		this.iterate();
+		super.policy = this.extractPolicy();
+	}
+
+	/**
+	 * Solves the m,n,k game given as the first argument, e.g. 4,4,4, in the directory given as the second, and prints the value of
+	 * the empty board.
+	 */
+	public static void main(String a[]) throws IOException
+	{
+		MNK mnk = MNK.parse(a.length > 0 ? a[0] : "3,3,3");
+		Path directory = Paths.get(a.length > 1 ? a[1] : "out-of-core-vi");
+
+		long start = System.nanoTime();
+		OutOfCoreValueIterationAgent agent = new OutOfCoreValueIterationAgent(mnk, directory);
+		System.out.printf("Solved %s: %d indices, value of the empty board %.4f, in %.1fs%n", mnk, agent.index.size(),
+				agent.value(new Game(mnk, 'X')), (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -0,0 +1,350 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves the tic-tac-toe MDP by value iteration for many sets of parameters (discount and rewards) at once, to study how the
+ * policy depends on them. All the configurations share one {@link CompiledMDP}, and are solved in blocks of {@link #columns}:
+ * the values of a block are one matrix with a row per state and a column per configuration, so a sweep reads each transition once
+ * for the whole block, and the values of a successor in every configuration are next to each other. The blocks are solved across
+ * a thread pool.
+ *
+ * Each column is backed up exactly as {@link ValueIterationAgent} backs up a compiled MDP, in the same order and with the same
+ * ties, so a configuration gets the policy that agent would find for it.
+ *
+ * @author ae187
+ *
+ */
+public class ParameterSweep {
+
+	/**
+	 * The parameters of one solve, as taken by {@link ValueIterationAgent#ValueIterationAgent(double, double, double, double, double)}
+	 */
+	public static class Config {
+		public final double discount;
+		public final double winReward;
+		public final double loseReward;
+		public final double livingReward;
+		public final double drawReward;
+
+		public Config(double discount, double winReward, double loseReward, double livingReward, double drawReward) {
+			this.discount = discount;
+			this.winReward = winReward;
+			this.loseReward = loseReward;
+			this.livingReward = livingReward;
+			this.drawReward = drawReward;
+		}
+
+		public TTTMDP mdp() {
+			return new TTTMDP(winReward, loseReward, livingReward, drawReward);
+		}
+
+		public String toString() {
+			return "discount " + discount + ", win " + winReward + ", lose " + loseReward + ", living " + livingReward
+					+ ", draw " + drawReward;
+		}
+	}
+
+	/**
+	 * The solution for one configuration, and how its policy does against a uniformly random opponent
+	 */
+	public static class Result {
+		public final Config config;
+		/**
+		 * the number of sweeps the configuration's block took
+		 */
+		public final long sweeps;
+		/**
+		 * the value of the empty board, X to move
+		 */
+		public final double value;
+		/**
+		 * the exact outcomes of the policy when X starts and when O starts, with the configuration's rewards and discount
+		 */
+		public final ExactEvaluator.Evaluation xStarts;
+		public final ExactEvaluator.Evaluation oStarts;
+
+		final CompiledMDP mdp;
+		final int[] actions;
+
+		Result(Config config, long sweeps, double value, ExactEvaluator.Evaluation xStarts, ExactEvaluator.Evaluation oStarts,
+				CompiledMDP mdp, int[] actions) {
+			this.config = config;
+			this.sweeps = sweeps;
+			this.value = value;
+			this.xStarts = xStarts;
+			this.oStarts = oStarts;
+			this.mdp = mdp;
+			this.actions = actions;
+		}
+
+		/**
+		 * @return the policy, built on every call: only the action ids are kept, as hundreds of policies of {@link Game}s would
+		 *         not fit in memory
+		 */
+		public Policy policy() {
+			return mdp.policy(actions);
+		}
+
+		public String toString() {
+			return config + ": " + sweeps + " sweeps, value " + String.format("%.4f", value) + "; X starts: " + xStarts
+					+ "; O starts: " + oStarts;
+		}
+	}
+
+	/**
+	 * The number of worker threads
+	 */
+	int threads;
+
+	/**
+	 * The number of configurations solved together, as the columns of one value matrix
+	 */
+	int columns = 16;
+
+	/**
+	 * The largest change in any value at which a block stops sweeping
+	 */
+	double tolerance = 1e-9;
+
+	/**
+	 * A sweep using one worker thread per available processor
+	 */
+	public ParameterSweep() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParameterSweep(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("A sweep needs at least one thread");
+
+		this.threads = threads;
+	}
+
+	/**
+	 * @param columns
+	 *            the number of configurations solved together, see {@link #columns}
+	 */
+	public void setColumns(int columns) {
+		if (columns < 1)
+			throw new IllegalArgumentException("A block needs at least one column");
+
+		this.columns = columns;
+	}
+
+	/**
+	 * @return every combination of the given parameters, discounts varying slowest and draw rewards fastest
+	 */
+	public static List<Config> grid(double[] discounts, double[] winRewards, double[] loseRewards, double[] livingRewards,
+			double[] drawRewards) {
+		List<Config> grid = new ArrayList<Config>();
+		for (double discount : discounts)
+			for (double win : winRewards)
+				for (double lose : loseRewards)
+					for (double living : livingRewards)
+						for (double draw : drawRewards)
+							grid.add(new Config(discount, win, lose, living, draw));
+
+		return grid;
+	}
+
+	/**
+	 * Solves every configuration and evaluates its policy.
+	 *
+	 * @return one result per configuration, in the same order
+	 */
+	public List<Result> run(List<Config> configs) {
+		CompiledMDP mdp = CompiledMDP.get(MNK.TIC_TAC_TOE, CompiledMDP.Layout.LAYERED);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<Result>>> blocks = new ArrayList<Future<List<Result>>>();
+			for (int from = 0; from < configs.size(); from += columns) {
+				List<Config> block = configs.subList(from, Math.min(from + columns, configs.size()));
+				blocks.add(pool.submit(() -> solve(mdp, block)));
+			}
+
+			List<Result> results = new ArrayList<Result>();
+			for (Future<List<Result>> block : blocks)
+				results.addAll(block.get());
+
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Sweep interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Solves a block of configurations together and evaluates their policies.
+	 */
+	List<Result> solve(CompiledMDP mdp, List<Config> block) {
+		int c = block.size();
+		// the value of state s in configuration j is values[s*c+j], and the reward of kind k is rewards[k*c+j]
+		double[] values = new double[(mdp.states() + 1) * c];
+		double[] rewards = new double[4 * c];
+		double[] discounts = new double[c];
+		for (int j = 0; j < c; j++) {
+			double[] r = CompiledMDP.rewards(block.get(j).mdp());
+			for (int k = 0; k < r.length; k++)
+				rewards[k * c + j] = r[k];
+			discounts[j] = block.get(j).discount;
+		}
+
+		double[] q = new double[c];
+		double[] best = new double[c];
+		long sweeps = 0;
+		double residual;
+		do {
+			residual = 0.0;
+			for (int s = 0; s < mdp.states(); s++) {
+				Arrays.fill(best, -Double.MAX_VALUE);
+				for (int a = mdp.actionStart[s]; a < mdp.actionStart[s + 1]; a++) {
+					backup(mdp, a, values, rewards, discounts, q);
+					for (int j = 0; j < c; j++)
+						best[j] = Math.max(best[j], q[j]);
+				}
+				for (int j = 0; j < c; j++) {
+					residual = Math.max(residual, Math.abs(values[s * c + j] - best[j]));
+					values[s * c + j] = best[j];
+				}
+			}
+			sweeps++;
+		} while (residual > tolerance);
+
+		// the greedy actions, the last of the best ones as in CompiledMDP.greedy
+		int[][] actions = new int[c][mdp.states()];
+		for (int s = 0; s < mdp.states(); s++) {
+			Arrays.fill(best, -Double.MAX_VALUE);
+			for (int a = mdp.actionStart[s]; a < mdp.actionStart[s + 1]; a++) {
+				backup(mdp, a, values, rewards, discounts, q);
+				for (int j = 0; j < c; j++)
+					if (q[j] >= best[j]) {
+						best[j] = q[j];
+						actions[j][s] = a;
+					}
+			}
+		}
+
+		int empty = mdp.id(0L, 0L);
+		List<Result> results = new ArrayList<Result>();
+		for (int j = 0; j < c; j++) {
+			Config config = block.get(j);
+			ExactEvaluator evaluator = new ExactEvaluator(mdp.policy(actions[j]), OpponentModel.UNIFORM, config.mdp(),
+					config.discount);
+			results.add(new Result(config, sweeps, values[empty * c + j], evaluator.evaluate('X'), evaluator.evaluate('O'), mdp,
+					actions[j]));
+		}
+		return results;
+	}
+
+	/**
+	 * Computes into {@code q} the q-value of {@code action} in every configuration of a block, summed in the same order as
+	 * {@link CompiledMDP#q}
+	 */
+	static void backup(CompiledMDP mdp, int action, double[] values, double[] rewards, double[] discounts, double[] q) {
+		int c = q.length;
+		Arrays.fill(q, 0.0);
+		for (int t = mdp.transitionStart[action]; t < mdp.transitionStart[action + 1]; t++) {
+			double p = mdp.prob[t];
+			int r = mdp.kind[t] * c, v = mdp.next[t] * c;
+			for (int j = 0; j < c; j++)
+				q[j] += p * (rewards[r + j] + discounts[j] * values[v + j]);
+		}
+	}
+
+	public static final String help = " -h this menu" + "\n -d the discounts: -d <d1,d2,...>"
+			+ "\n -w the win rewards: -w <r1,r2,...>" + "\n -l the lose rewards: -l <r1,r2,...>"
+			+ "\n -v the living rewards: -v <r1,r2,...>" + "\n -r the draw rewards: -r <r1,r2,...>"
+			+ "\n -c the number of configurations solved together: -c <columns>"
+			+ "\n -t the number of threads: -t <threads>";
+
+	/**
+	 * Solves every combination of the given parameters and prints one line of results per configuration, e.g.
+	 * {@code -d 0.8,0.9,0.99 -l -50,-10 -v -1,0}. Parameters not given keep the defaults of {@link TTTMDP}, and a discount of 0.9.
+	 */
+	public static void main(String a[]) {
+		List<String> args = Arrays.asList(a);
+		if (args.contains("-h")) {
+			System.out.println(help);
+			return;
+		}
+
+		double[] discounts = { 0.9 };
+		double[] wins = { 10.0 };
+		double[] loses = { -50.0 };
+		double[] livings = { -1.0 };
+		double[] draws = { 0.0 };
+		int columns = 16;
+		int threads = Runtime.getRuntime().availableProcessors();
+		Iterator<String> iter = args.iterator();
+
+		while (iter.hasNext()) {
+			String cur = iter.next();
+			if (!iter.hasNext()) {
+				System.out.println("Error: " + cur + " should be followed by a value\n" + help);
+				return;
+			}
+			String next = iter.next();
+			try {
+				switch (cur) {
+				case "-d":
+					discounts = parse(next);
+					break;
+				case "-w":
+					wins = parse(next);
+					break;
+				case "-l":
+					loses = parse(next);
+					break;
+				case "-v":
+					livings = parse(next);
+					break;
+				case "-r":
+					draws = parse(next);
+					break;
+				case "-c":
+					columns = Integer.parseInt(next);
+					break;
+				case "-t":
+					threads = Integer.parseInt(next);
+					break;
+				default:
+					System.out.println("Unrecognised option: " + cur + "\n" + help);
+					return;
+				}
+			} catch (NumberFormatException e) {
+				System.out.println("Error: the value of " + cur + " is not a number: " + next + "\n" + help);
+				return;
+			}
+		}
+
+		ParameterSweep sweep = new ParameterSweep(threads);
+		sweep.setColumns(columns);
+		List<Config> configs = grid(discounts, wins, loses, livings, draws);
+		long start = System.nanoTime();
+		List<Result> results = sweep.run(configs);
+		for (Result result : results)
+			System.out.println(result);
+
+		System.out.println(String.format("Solved %d configurations in %.1f ms", results.size(), (System.nanoTime() - start) / 1e6));
+	}
+
+	static double[] parse(String values) {
+		return Arrays.stream(values.split(",")).mapToDouble(Double::parseDouble).toArray();
+	}
+
+}
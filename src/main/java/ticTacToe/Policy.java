@@ -1,7 +1,14 @@
 package ticTacToe;
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * A Tic Tac Toe Policy implemented via a HashMap
@@ -48,17 +55,99 @@ public class Policy {
 	 * specifies the action/move determined by the policy in a particular game state. The game states should not
 	 * explicitly stored, only their hashes are stored. The {@link Game} object itself can be constructed using the 
 	 * {@link Game#inverseHash} method.
+	 * 
+	 * This is the format written by {@link #write}: one {@code <game hash> <x> <y>} line per state. Lines starting with '#' are
+	 * ignored.
 	 *  
 	 * @param file
+	 * @throws UncheckedIOException if the file cannot be read, see {@link #load} for a checked exception
 	 */
 	public Policy(String file)
 	{
-		/* implement this constructor to load a stored policy from file. */
+		try {
+			read(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Loads a policy from a file in the format of {@link #write}, like {@link #Policy(String)}.
+	 * 
+	 * @param file
+	 * @return the policy
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Policy load(String file) throws IOException
+	{
+		Policy p=new Policy();
+		p.read(file);
+		return p;
+	}
+	
+	/**
+	 * Adds the states and moves in {@code file} to this policy.
+	 */
+	void read(String file) throws IOException
+	{
+		TrainingEvents.PolicyLoad event=new TrainingEvents.PolicyLoad();
+		event.begin();
+		
+		for (String line: Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8))
+			parse(line);
 		
+		if (event.shouldCommit())
+		{
+			event.file=file;
+			event.states=policy.size();
+			event.commit();
+		}
 	}
-
 	
+	/**
+	 * Adds the state and move of a line written by {@link #write} to this policy.
+	 * 
+	 * @param line
+	 */
+	void parse(String line)
+	{
+		if (line.isEmpty() || line.startsWith("#"))
+			return;
+		
+		String[] fields=line.split(" ");
+		if (fields.length!=3)
+			throw new IllegalArgumentException("Not a policy line: "+line);
+		
+		Game g=Game.inverseHash(Integer.parseInt(fields[0]));
+		if (g==null)
+			throw new IllegalArgumentException("Not a game hash: "+fields[0]);
+		
+		g.evaluateGameState();
+		policy.put(g, new Move(g.whoseTurn.getName(), Integer.parseInt(fields[1]), Integer.parseInt(fields[2])));
+	}
 	
+	/**
+	 * Writes this policy in the format read by {@link #Policy(String)}, in ascending order of game hash so that the same policy
+	 * is always written the same way.
+	 * 
+	 * @param out
+	 */
+	public void write(StringBuilder out)
+	{
+		TreeMap<Integer, Move> sorted=new TreeMap<Integer, Move>();
+		for (Map.Entry<Game, Move> e: policy.entrySet())
+			sorted.put(e.getKey().hashCode(), e.getValue());
+		
+		for (Map.Entry<Integer, Move> e: sorted.entrySet())
+			out.append(e.getKey()).append(' ').append(e.getValue().x).append(' ').append(e.getValue().y).append('\n');
+	}
 	
+	/**
+	 * @return the number of states this policy has a move for
+	 */
+	public int size()
+	{
+		return policy.size();
+	}
 
 }
@@ -0,0 +1,296 @@
+package ticTacToe;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A cache of solved policies, so that constructing a {@link ValueIterationAgent}, {@link PolicyIterationAgent} or
+ * {@link QLearningAgent} only trains the first time a given configuration is seen.
+ *
+ * Policies are looked up by a key naming the solver and every parameter its result depends on (see {@link #key}). There are two
+ * tiers: a map shared by all agents in this JVM, and a directory of policy files shared between runs. The disk tier is off unless
+ * the {@code ticTacToe.policyCache} system property names its directory (the build uses {@code target/policy-cache} for the
+ * tests). Every caller gets its own copy of a cached policy, so changing it does not change the policy of other agents.
+ *
+ * Only the policy is cached: an agent that finds its policy here is not solved, and only works out the values of its states if
+ * they are read.
+ *
+ * A cache file is a policy in the format of {@link Policy#write}, preceded by a header holding the key and the SHA-256 of the
+ * policy lines. On disk, the key also holds a digest of the code of this package (see {@link #code}), so that files written by
+ * any other version of the solvers are never read. Files are written to a temporary file and atomically moved into place, so concurrent runs never see a half-written
+ * policy; a file whose key or hash does not match (stale, corrupted or truncated) is treated as a miss and overwritten.
+ *
+ * @author ae187
+ *
+ */
+public class PolicyCache {
+
+	/**
+	 * Bumped whenever the file format changes
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The digest of the code, see {@link #code()}
+	 */
+	static String code;
+
+	static final String KEY_HEADER = "# key ";
+	static final String HASH_HEADER = "# sha256 ";
+
+	/**
+	 * The in-memory tier
+	 */
+	static final Map<String, Policy> memory = new ConcurrentHashMap<String, Policy>();
+
+	static final MetricsRegistry metrics = MetricsRegistry.get("PolicyCache");
+	static final MetricsRegistry.Counter memoryHits = metrics.counter("MemoryHits");
+	static final MetricsRegistry.Counter diskHits = metrics.counter("DiskHits");
+	static final MetricsRegistry.Counter misses = metrics.counter("Misses");
+
+	/**
+	 * Builds a cache key from a solver name and the parameters its policy depends on.
+	 *
+	 * @param solver e.g. "ValueIterationAgent"
+	 * @param win the reward for winning, as in {@link TTTMDP} and {@link TTTEnvironment}
+	 * @param lose the reward for losing
+	 * @param living the reward for each move that does not end the game
+	 * @param draw the reward for a draw
+	 * @param params alternating parameter names and values
+	 * @return the key
+	 */
+	public static String key(String solver, double win, double lose, double living, double draw, Object... params)
+	{
+		StringBuilder key = new StringBuilder();
+		key.append(solver).append(" v").append(VERSION)
+			.append(" win=").append(win).append(" lose=").append(lose).append(" living=").append(living).append(" draw=").append(draw);
+
+		for (int i = 0; i + 1 < params.length; i += 2)
+			key.append(' ').append(params[i]).append('=').append(params[i + 1]);
+
+		return key.toString();
+	}
+
+	/**
+	 * Looks up a policy, first in memory then on disk.
+	 *
+	 * @param key
+	 * @return the cached policy, or null if there is none
+	 */
+	public static Policy get(String key)
+	{
+		return get(key, false);
+	}
+
+	/**
+	 * Looks up a policy, first in memory then on disk.
+	 *
+	 * @param key
+	 * @param symmetric true if the policy only has moves for canonical games, and so is loaded as a {@link SymmetricPolicy}
+	 * @return the cached policy, or null if there is none
+	 */
+	public static Policy get(String key, boolean symmetric)
+	{
+		Policy p = memory.get(key);
+		if (p != null) {
+			memoryHits.increment();
+			return copy(p);
+		}
+
+		Path file = file(key);
+		if (file != null && Files.isReadable(file)) {
+			try {
+				p = read(file, diskKey(key), symmetric);
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Ignoring unreadable policy cache file " + file + ": " + e);
+			}
+			if (p != null) {
+				diskHits.increment();
+				memory.put(key, p);
+				return copy(p);
+			}
+		}
+
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Stores a policy in both tiers. Failing to write the cache file is reported but not fatal.
+	 *
+	 * @param key
+	 * @param p
+	 */
+	public static void put(String key, Policy p)
+	{
+		memory.put(key, copy(p));
+
+		Path file = file(key);
+		if (file == null)
+			return;
+
+		try {
+			write(file, diskKey(key), p);
+		} catch (IOException e) {
+			System.err.println("Could not write policy cache file " + file + ": " + e);
+		}
+	}
+
+	/**
+	 * Empties the in-memory tier. Files on disk are left alone.
+	 */
+	public static void clear()
+	{
+		memory.clear();
+	}
+
+	/**
+	 * @return a policy with the same moves as {@code p}, and of the same kind, that can be changed without changing {@code p}
+	 */
+	static Policy copy(Policy p)
+	{
+		HashMap<Game, Move> moves = new HashMap<Game, Move>(p.policy);
+		return p instanceof SymmetricPolicy ? new SymmetricPolicy(moves) : new Policy(moves);
+	}
+
+	/**
+	 * @return the cache directory, or null if the disk tier is turned off
+	 */
+	static Path directory()
+	{
+		String dir = System.getProperty("ticTacToe.policyCache");
+		if (dir == null || dir.isEmpty() || dir.equals("none"))
+			return null;
+
+		return Paths.get(dir);
+	}
+
+	/**
+	 * @return the file the policy with this key is cached in, or null if the disk tier is turned off or the code cannot be read
+	 */
+	static Path file(String key)
+	{
+		Path dir = directory();
+		if (dir == null || code() == null)
+			return null;
+
+		return dir.resolve(sha256(diskKey(key)).substring(0, 16) + ".policy");
+	}
+
+	/**
+	 * @return the key of a policy on disk, which names the code that solved it
+	 */
+	static String diskKey(String key)
+	{
+		return key + " code=" + code();
+	}
+
+	/**
+	 * @return the SHA-256 of the class files of this package, from the jar or the directory they are loaded from, or null if they
+	 *         cannot be read. Any change to a solver, or to the code it uses, changes it.
+	 */
+	static synchronized String code()
+	{
+		if (code == null) {
+			try {
+				MessageDigest md = MessageDigest.getInstance("SHA-256");
+				Path source = Paths.get(PolicyCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+				if (Files.isDirectory(source)) {
+					List<Path> classes;
+					try (Stream<Path> files = Files.walk(source.resolve("ticTacToe"))) {
+						classes = files.filter(f -> f.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+					}
+					for (Path f: classes) {
+						md.update(source.relativize(f).toString().getBytes(StandardCharsets.UTF_8));
+						md.update(Files.readAllBytes(f));
+					}
+				} else {
+					md.update(Files.readAllBytes(source));
+				}
+				code = hex(md.digest());
+			} catch (IOException | URISyntaxException | NoSuchAlgorithmException | RuntimeException e) {
+				System.err.println("Policy cache files are off, the code of the solvers cannot be read: " + e);
+			}
+		}
+
+		return code;
+	}
+
+	static Policy read(Path file, String key, boolean symmetric) throws IOException
+	{
+		String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+		int keyEnd = content.indexOf('\n');
+		int hashEnd = keyEnd < 0 ? -1 : content.indexOf('\n', keyEnd + 1);
+		if (hashEnd < 0)
+			return null;
+
+		String keyLine = content.substring(0, keyEnd);
+		String hashLine = content.substring(keyEnd + 1, hashEnd);
+		String body = content.substring(hashEnd + 1);
+
+		if (!keyLine.equals(KEY_HEADER + key) || !hashLine.equals(HASH_HEADER + sha256(body)))
+			return null;
+
+		TrainingEvents.PolicyLoad event = new TrainingEvents.PolicyLoad();
+		event.begin();
+
+		Policy p = symmetric ? new SymmetricPolicy() : new Policy();
+		for (String line: body.split("\n"))
+			p.parse(line);
+
+		if (event.shouldCommit()) {
+			event.file = file.toString();
+			event.states = p.size();
+			event.commit();
+		}
+		return p;
+	}
+
+	static void write(Path file, String key, Policy p) throws IOException
+	{
+		StringBuilder body = new StringBuilder();
+		p.write(body);
+		String content = KEY_HEADER + key + "\n" + HASH_HEADER + sha256(body.toString()) + "\n" + body;
+
+		Files.createDirectories(file.getParent());
+		Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	static String sha256(String s)
+	{
+		try {
+			return hex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String hex(byte[] digest)
+	{
+		StringBuilder hex = new StringBuilder();
+		for (byte b: digest)
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+}
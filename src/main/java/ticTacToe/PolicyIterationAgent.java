@@ -3,7 +3,7 @@ package ticTacToe;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * A policy iteration agent. You should implement the following methods:
@@ -23,9 +23,17 @@ public class PolicyIterationAgent extends Agent
 {
 	/**
 	 * This map is used to store the values of states according to the current policy (policy evaluation). 
+	 * If the policy was found in the {@link PolicyCache}, it is only filled in once the values are first needed, see
+	 * {@link #fillValues}.
 	 */
 	HashMap<Game, Double> policyValues=new HashMap<Game, Double>();
 	
+	/**
+	 * True if the policy was found in the {@link PolicyCache} and {@link #policyValues} and {@link #curPolicy} have not been
+	 * filled in yet
+	 */
+	boolean cacheHit=false;
+	
 	/**
 	 * This stores the current policy as a map from {@link Game}s to {@link Move}. 
 	 */
@@ -43,6 +51,59 @@ public class PolicyIterationAgent extends Agent
 	 */
 	TTTMDP mdp;
 	
+	/**
+	 * The random stream used to pick the initial policy, split off {@link RandomSource} unless one is given
+	 */
+	SplittableRandom random = RandomSource.split();
+	
+	/**
+	 * If true, the policy may be taken from, and is stored in, the {@link PolicyCache}. An agent given a random stream is expected
+	 * to solve reproducibly, and so is always solved.
+	 */
+	boolean cached=true;
+	
+	/**
+	 * If true, only canonical games (see {@link Symmetry}) are stored and backed up, and the policy is a {@link SymmetricPolicy}
+	 */
+	boolean symmetric=false;
+	
+	/**
+	 * If not null, the MDP is compiled to arrays with this layout (see {@link CompiledMDP}) and solved there, in {@link #values}
+	 * and {@link #actions}, instead of in {@link #policyValues} and {@link #curPolicy}
+	 */
+	CompiledMDP.Layout layout=null;
+	
+	/**
+	 * If true, the compiled MDP's values are stored as floats, in {@link #floatValues}, halving the memory each evaluation sweep
+	 * reads. Backups still sum in double precision.
+	 */
+	boolean singlePrecision=false;
+	
+	/**
+	 * The compiled MDP, the value (in one of the two arrays, see {@link #singlePrecision}) and current action of each of its
+	 * states and the rewards indexed by kind, when {@link #layout} is set
+	 */
+	CompiledMDP compiled;
+	double[] values;
+	float[] floatValues;
+	int[] actions;
+	double[] rewards;
+	
+	/**
+	 * Training metrics shared by all policy iteration agents, published over JMX. See {@link MetricsRegistry}.
+	 */
+	static final MetricsRegistry metrics = MetricsRegistry.get("PolicyIterationAgent");
+	static final MetricsRegistry.Counter evaluationSweeps = metrics.counter("EvaluationSweeps");
+	static final MetricsRegistry.Counter improvementRounds = metrics.counter("ImprovementRounds");
+	static final MetricsRegistry.Counter changedActions = metrics.counter("ChangedActions");
+	static final MetricsRegistry.Gauge maxResidual = metrics.gauge("MaxResidual");
+	static final MetricsRegistry.Counter statesProcessed = metrics.counter("StatesProcessed");
+	static final MetricsRegistry.Counter transitionsProcessed = metrics.counter("TransitionsProcessed");
+	static final MetricsRegistry.Timer initTimer = metrics.timer("InitValues");
+	static final MetricsRegistry.Timer evaluateTimer = metrics.timer("EvaluatePolicy");
+	static final MetricsRegistry.Timer improveTimer = metrics.timer("ImprovePolicy");
+	static final MetricsRegistry.Timer trainTimer = metrics.timer("Train");
+	
 	/**
 	 * Loads the policy from file if one exists. Policies should be stored in .pol files directly under the project folder.
 	 */
@@ -50,9 +111,7 @@ public class PolicyIterationAgent extends Agent
 	{
 		super();
 		this.mdp=new TTTMDP();
-		initValues();
-		initRandomPolicy();
-		train();
+		solve();
 	}
 	
 	/**
@@ -75,9 +134,80 @@ public class PolicyIterationAgent extends Agent
 	{
 		this.discount=discountFactor;
 		this.mdp=new TTTMDP();
-		initValues();
-		initRandomPolicy();
-		train();
+		solve();
+	}
+
+	/**
+	 * Use this constructor to pick the initial policy with the given random stream. The agent is always solved, never looked up in
+	 * the {@link PolicyCache}.
+	 * 
+	 * @param discountFactor
+	 * @param random see {@link #random}
+	 */
+	public PolicyIterationAgent(double discountFactor, SplittableRandom random)
+	{
+		this.discount=discountFactor;
+		this.random=random;
+		this.cached=false;
+		this.mdp=new TTTMDP();
+		solve();
+	}
+
+	/**
+	 * Use this constructor to solve the MDP over canonical games only, which backs up roughly 8 times fewer states
+	 * 
+	 * @param discountFactor
+	 * @param symmetric see {@link #symmetric}
+	 */
+	public PolicyIterationAgent(double discountFactor, boolean symmetric)
+	{
+		this.discount=discountFactor;
+		this.symmetric=symmetric;
+		this.mdp=new TTTMDP();
+		solve();
+	}
+
+	/**
+	 * Use this constructor to solve the MDP compiled to flat arrays, which is much faster than solving it over {@link Game}s
+	 * 
+	 * @param discountFactor
+	 * @param layout the order of the states in the arrays, see {@link CompiledMDP.Layout}
+	 */
+	public PolicyIterationAgent(double discountFactor, CompiledMDP.Layout layout)
+	{
+		this(discountFactor, layout, false);
+	}
+
+	/**
+	 * Use this constructor to solve the MDP compiled to flat arrays, picking the initial policy with the given random stream
+	 * 
+	 * @param discountFactor
+	 * @param layout the order of the states in the arrays, see {@link CompiledMDP.Layout}
+	 * @param random see {@link #random}
+	 */
+	public PolicyIterationAgent(double discountFactor, CompiledMDP.Layout layout, SplittableRandom random)
+	{
+		this.discount=discountFactor;
+		this.layout=layout;
+		this.random=random;
+		this.mdp=new TTTMDP();
+		solve();
+	}
+
+	/**
+	 * Use this constructor to solve the MDP compiled to flat arrays, storing its values as floats if {@code singlePrecision}
+	 * 
+	 * @param discountFactor
+	 * @param layout the order of the states in the arrays, see {@link CompiledMDP.Layout}
+	 * @param singlePrecision see {@link #singlePrecision}
+	 */
+	public PolicyIterationAgent(double discountFactor, CompiledMDP.Layout layout, boolean singlePrecision)
+	{
+		this.discount=discountFactor;
+		this.layout=layout;
+		this.singlePrecision=singlePrecision;
+		this.mdp=new TTTMDP();
+		solve();
 	}
 
 	/**
@@ -93,11 +223,37 @@ public class PolicyIterationAgent extends Agent
 	{
 		this.discount=discountFactor;
 		this.mdp=new TTTMDP(winningReward, losingReward, livingReward, drawReward);
+		solve();
+	}
+
+	/**
+	 * Solves the MDP and sets the agent's policy, unless a policy for the same rewards and parameters is already in the
+	 * {@link PolicyCache}. A compiled MDP is always solved, so that its values are kept, and so is an agent that is not
+	 * {@link #cached}. On a cache hit only the policy is set,
+	 * and the values are worked out when they are first read (see {@link #fillValues}).
+	 */
+	void solve()
+	{
+		if (layout != null || !cached) {
+			initValues();
+			initRandomPolicy();
+			train();
+			return;
+		}
+		
+		String key = PolicyCache.key(getClass().getSimpleName(), mdp.winReward, mdp.loseReward, mdp.livingReward, mdp.drawReward,
+				"discount", discount, "delta", delta, "symmetric", symmetric);
+		super.policy = PolicyCache.get(key, symmetric);
+		cacheHit = super.policy != null;
+		if (cacheHit)
+			return;
+		
 		initValues();
 		initRandomPolicy();
 		train();
+		PolicyCache.put(key, super.policy);
 	}
-
+	
 	/**
 	 * Initialises the {@link #policyValues} map, and sets the initial value of all states to 0 
 	 * (V0 under some policy pi ({@link #curPolicy} from the lectures). Uses {@link Game#inverseHash}
@@ -105,14 +261,66 @@ public class PolicyIterationAgent extends Agent
 	 */
 	public void initValues()
 	{
+		long start=initTimer.start();
+		TrainingEvents.MDPCompilation event=new TrainingEvents.MDPCompilation();
+		event.begin();
+		if (layout != null) {
+			compiled=CompiledMDP.get(MNK.TIC_TAC_TOE, layout);
+			if (singlePrecision)
+				floatValues=compiled.newFloatValues();
+			else
+				values=compiled.newValues();
+			actions=new int[compiled.states()];
+			rewards=CompiledMDP.rewards(mdp);
+			initTimer.stop(start);
+			if (event.shouldCommit()) {
+				event.solver="PolicyIterationAgent";
+				event.states=compiled.states();
+				event.transitions=compiled.transitions();
+				event.commit();
+			}
+			return;
+		}
+		
+		cacheHit=false;
 		// All valid games where it is X's turn, or it's terminal
 		List<Game> allGames=Game.generateAllValidGames('X');
 		
 		for (Game g: allGames) {
-			this.policyValues.put(g, 0.0);
+			if (!symmetric || Symmetry.isCanonical(g))
+				this.policyValues.put(g, 0.0);
+		}
+		initTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.solver="PolicyIterationAgent";
+			event.states=this.policyValues.size();
+			event.commit();
 		}
 	}
 
+	/**
+	 * Fills in {@link #curPolicy} and {@link #policyValues} after a {@link PolicyCache} hit, by evaluating the cached policy. As
+	 * solving stops once evaluating a policy does not improve it, these are the policy and values a solve ends with.
+	 */
+	void fillValues()
+	{
+		if (cacheHit) {
+			initValues();
+			this.curPolicy.putAll(super.policy.policy);
+			evaluatePolicy(this.delta);
+		}
+	}
+
+	/**
+	 * @param g
+	 * @return the current value of {@code g}, which is stored under its canonical representative in {@link #symmetric} mode
+	 */
+	double value(Game g)
+	{
+		fillValues();
+		return this.policyValues.get(symmetric ? Symmetry.canonical(g) : g);
+	}
+
 	/**
 	 * You should implement this method to initially generate a random policy, i.e. fill the {@link #curPolicy} for every state.
 	 * Take care that the moves you choose for each state ARE VALID. You can use the {@link Game#getPossibleMoves()} method to
@@ -120,11 +328,18 @@ public class PolicyIterationAgent extends Agent
 	 */
 	public void initRandomPolicy()
 	{
+		fillValues();
+		if (compiled != null) {
+			for (int s = 0; s < actions.length; s++)
+				actions[s] = compiled.randomAction(s, random);
+			return;
+		}
+		
 		for (Game currentState : this.policyValues.keySet()) {
 			if (currentState.getPossibleMoves().size() > 0) {
 				this.curPolicy.put(
 					currentState,
-					currentState.getPossibleMoves().get(new Random().nextInt(currentState.getPossibleMoves().size()))
+					currentState.getPossibleMoves().get(this.random.nextInt(currentState.getPossibleMoves().size()))
 				);
 			}
 		}
@@ -140,10 +355,27 @@ public class PolicyIterationAgent extends Agent
 	 */
 	protected void evaluatePolicy(double delta)
 	{
+		fillValues();
+		if (compiled != null) {
+			evaluateCompiled(delta);
+			return;
+		}
+		
+		long start = evaluateTimer.start();
+		TrainingEvents.PolicyEvaluation event = new TrainingEvents.PolicyEvaluation();
+		event.begin();
+		long sweeps = 0;
+		double lastResidual = 0.0;
+		
 		// Delta for each iteration is initialised to arbitrary value
 		double iterationDelta = 0.0;
 
 		do {
+			// Largest change in any state's value during this sweep, and work done, for the training metrics
+			double residual = 0.0;
+			long states = 0;
+			long transitions = 0;
+			
 			// Start at the first state in the policyValues map
 			for (Map.Entry<Game, Double> currentGame : this.policyValues.entrySet()) {
 				// Get all the possible actions from the current state (Game)
@@ -166,12 +398,13 @@ public class PolicyIterationAgent extends Agent
 				for (Move move : currentMoves) {
 					// Get all the possible outcomes from the current action (Move)
 					List<TransitionProb> T = mdp.generateTransitions(currentGame.getKey(), move);
+					transitions += T.size();
 
 					// Compute the Bellman equation for this action
 					double sum = 0.0;
 					for (TransitionProb t : T) {
 						sum += (t.prob * (
-							t.outcome.localReward + this.discount * this.policyValues.get(t.outcome.sPrime))
+							t.outcome.localReward + this.discount * this.value(t.outcome.sPrime))
 						);
 					}
 
@@ -189,9 +422,26 @@ public class PolicyIterationAgent extends Agent
 
 				// Store the new utility of the current state (Game)
 				this.policyValues.replace(currentGame.getKey(), newStateValue);
+				residual = Math.max(residual, iterationDelta);
+				states++;
 			}
+			
+			evaluationSweeps.increment();
+			maxResidual.set(residual);
+			sweeps++;
+			lastResidual = residual;
+			statesProcessed.add(states);
+			transitionsProcessed.add(transitions);
 		// Can stop iterating once difference is <= provided min difference (delta)
 		} while (iterationDelta > delta);
+		
+		evaluateTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.states = this.policyValues.size();
+			event.sweeps = sweeps;
+			event.residual = lastResidual;
+			event.commit();
+		}
 	}
 
 	/**
@@ -204,6 +454,15 @@ public class PolicyIterationAgent extends Agent
 	 */
 	protected boolean improvePolicy()
 	{
+		fillValues();
+		if (compiled != null)
+			return improveCompiled();
+		
+		long start = improveTimer.start();
+		TrainingEvents.PolicyImprovement event = new TrainingEvents.PolicyImprovement();
+		event.begin();
+		long changed = 0;
+		
 		/*
 		 * Only one action needs to be updated for the policy to have been improved
 		 */
@@ -231,12 +490,13 @@ public class PolicyIterationAgent extends Agent
 			for (Move move : currentMoves) {
 				// Get all the possible outcomes from the current action (Move)
 				List<TransitionProb> T = mdp.generateTransitions(currentGame, move);
+				transitionsProcessed.add(T.size());
 
 				// Compute the Bellman equation for this action
 				double sum = 0.0;
 				for (TransitionProb t : T) {
 					sum += (t.prob * (
-						t.outcome.localReward + this.discount * this.policyValues.get(t.outcome.sPrime))
+						t.outcome.localReward + this.discount * this.value(t.outcome.sPrime))
 					);
 				}
 
@@ -253,12 +513,94 @@ public class PolicyIterationAgent extends Agent
 				this.curPolicy.replace(currentGame, newAction);
 				// Policy has been improved
 				improved = true;
+				changedActions.increment();
+				changed++;
 			}
 		}
 		
+		improvementRounds.increment();
+		improveTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.states = this.policyValues.size();
+			event.changedActions = changed;
+			event.commit();
+		}
 		return improved;
 	}
 	
+	/**
+	 * Evaluates the current {@link #actions} on the {@link #compiled} MDP, sweeping until no value changes by more than
+	 * {@code delta}.
+	 * 
+	 * @return the number of sweeps done
+	 */
+	long evaluateCompiled(double delta)
+	{
+		long start = evaluateTimer.start();
+		TrainingEvents.PolicyEvaluation event = new TrainingEvents.PolicyEvaluation();
+		event.begin();
+		long sweeps = 0;
+		double residual;
+		do {
+			residual = singlePrecision ? compiled.evaluationSweep(actions, floatValues, rewards, discount)
+					: compiled.evaluationSweep(actions, values, rewards, discount);
+			
+			evaluationSweeps.increment();
+			maxResidual.set(residual);
+			sweeps++;
+			statesProcessed.add(compiled.states());
+			transitionsProcessed.add(compiled.transitions());
+		} while (residual > delta);
+		
+		evaluateTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.states = compiled.states();
+			event.sweeps = sweeps;
+			event.residual = residual;
+			event.commit();
+		}
+		return sweeps;
+	}
+	
+	/**
+	 * Switches every state of the {@link #compiled} MDP to its greedy action, if that is strictly better than its current one, so
+	 * that ties cannot make the policy cycle.
+	 * 
+	 * @return true if any action changed
+	 */
+	boolean improveCompiled()
+	{
+		long start = improveTimer.start();
+		TrainingEvents.PolicyImprovement event = new TrainingEvents.PolicyImprovement();
+		event.begin();
+		long changed = 0;
+		for (int s = 0; s < actions.length; s++) {
+			int best;
+			boolean better;
+			if (singlePrecision) {
+				best = compiled.greedy(s, floatValues, rewards, discount);
+				better = compiled.q(best, floatValues, rewards, discount) > compiled.q(actions[s], floatValues, rewards, discount);
+			} else {
+				best = compiled.greedy(s, values, rewards, discount);
+				better = compiled.q(best, values, rewards, discount) > compiled.q(actions[s], values, rewards, discount);
+			}
+			if (better) {
+				actions[s] = best;
+				changed++;
+			}
+		}
+		
+		changedActions.add(changed);
+		improvementRounds.increment();
+		improveTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.states = compiled.states();
+			event.changedActions = changed;
+			event.commit();
+		}
+		return changed > 0;
+	}
+	
 	/**
 	 * This method should perform policy evaluation and policy improvement steps until convergence (i.e. until the policy
 	 * no longer changes), and so uses your 
@@ -266,13 +608,56 @@ public class PolicyIterationAgent extends Agent
 	 */
 	public void train()
 	{
+		long start = trainTimer.start();
+		
 		// Repeat an evaluate/improve chain until the policy is no longer changed
 		do {
 			this.evaluatePolicy(this.delta);		
 		} while (this.improvePolicy() == true);
 		
 		// Once the policy has been finalised (converged), update the Agent - play can begin
-		super.policy = new Policy(this.curPolicy);
+		TrainingEvents.PolicyExtraction event = new TrainingEvents.PolicyExtraction();
+		event.begin();
+		if (compiled != null)
+			super.policy = compiled.policy(actions);
+		else
+			super.policy = symmetric ? new SymmetricPolicy(this.curPolicy) : new Policy(this.curPolicy);
+		if (event.shouldCommit()) {
+			event.solver = "PolicyIterationAgent";
+			event.states = super.policy.size();
+			event.commit();
+		}
+		trainTimer.stop(start);
+	}
+	
+	/**
+	 * Re-solves the compiled MDP for new rewards and discount, warm-started: the compiled transitions are kept, and policy
+	 * iteration starts from the current policy and values rather than from a random policy and 0. When the parameters change a
+	 * little, the first evaluation only has to correct the values a little and few actions change, so it takes a few sweeps
+	 * instead of a full solve.
+	 * 
+	 * @return the number of evaluation sweeps done
+	 * @throws IllegalStateException
+	 *             if the agent does not solve a compiled MDP, see {@link #PolicyIterationAgent(double, CompiledMDP.Layout)}
+	 */
+	public long resolve(double discountFactor, double winningReward, double losingReward, double livingReward, double drawReward)
+	{
+		if (compiled == null)
+			throw new IllegalStateException("Only an agent solving a compiled MDP can be re-solved");
+		
+		this.discount=discountFactor;
+		this.mdp=new TTTMDP(winningReward, losingReward, livingReward, drawReward);
+		this.rewards=CompiledMDP.rewards(mdp);
+		
+		long start = trainTimer.start();
+		long sweeps = 0;
+		do {
+			sweeps += evaluateCompiled(this.delta);
+		} while (improveCompiled());
+		
+		super.policy = compiled.policy(actions);
+		trainTimer.stop(start);
+		return sweeps;
 	}
 	
 	public static void main(String[] args) throws IllegalMoveException
@@ -2,7 +2,7 @@ package ticTacToe;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * A Q-Learning agent with a Q-Table, i.e. a table of Q-Values. This table is implemented in the {@link QTable} class.
@@ -53,7 +53,81 @@ public class QLearningAgent extends Agent
 	 * By default, the opponent is the random agent which should make your q learning agent learn the same policy 
 	 * as your value iteration and policy iteration agents.
 	 */
-	TTTEnvironment env = new TTTEnvironment();
+	TTTEnvironment env;
+
+	/**
+	 * The random stream used by the epsilon-greedy policy during training
+	 */
+	SplittableRandom random;
+	
+	/**
+	 * If true, q-values are only kept for canonical games (see {@link Symmetry}): every game is looked up under its canonical
+	 * representative, so experience in one game also trains the games equivalent to it. The policy is a {@link SymmetricPolicy}.
+	 */
+	boolean symmetric = false;
+	
+	/**
+	 * If true, the q-values are stored as floats in {@link #compactTable} instead of in {@link #qTable}, a quarter of the
+	 * memory. Updates still compute in double precision.
+	 */
+	boolean singlePrecision = false;
+	
+	/**
+	 * The q-values in {@link #singlePrecision} mode, over the actions of the tic-tac-toe {@link CompiledMDP}
+	 */
+	CompactQTable compactTable;
+	
+	/**
+	 * If true, q-values are created as they are learnt, in {@link #sparseTable}, instead of for every game up front: no memory
+	 * goes to games the opponent never lets happen, and the agent starts training at once. The policy only has the games visited
+	 * in training.
+	 */
+	boolean lazy = false;
+	
+	/**
+	 * The q-values in {@link #lazy} mode
+	 */
+	SparseQTable sparseTable;
+	
+	/**
+	 * If true, the policy may be taken from, and is stored in, the {@link PolicyCache}. Only agents created without a random
+	 * stream, while {@link RandomSource} is unseeded, use the cache: one that is given a stream, or created after a seed was set,
+	 * is expected to learn reproducibly, and so is always trained.
+	 */
+	boolean cached = false;
+	
+	/**
+	 * Training metrics shared by all q-learning agents, published over JMX. See {@link MetricsRegistry}.
+	 */
+	static final MetricsRegistry metrics = MetricsRegistry.get("QLearningAgent");
+	static final MetricsRegistry.Counter episodes = metrics.counter("Episodes");
+	static final MetricsRegistry.Gauge episodesPerSecond = metrics.gauge("EpisodesPerSecond");
+	static final MetricsRegistry.Gauge epsilonGauge = metrics.gauge("Epsilon");
+	static final MetricsRegistry.Gauge averageTdError = metrics.gauge("AverageTdError");
+	static final MetricsRegistry.Counter statesProcessed = metrics.counter("StatesProcessed");
+	static final MetricsRegistry.Gauge statesVisited = metrics.gauge("StatesVisited");
+	static final MetricsRegistry.Gauge tableFootprint = metrics.gauge("QTableFootprint");
+	static final MetricsRegistry.Timer initTimer = metrics.timer("InitQTable");
+	static final MetricsRegistry.Timer trainTimer = metrics.timer("Train");
+	static final MetricsRegistry.Timer extractTimer = metrics.timer("ExtractPolicy");
+	
+	/**
+	 * The number of episodes between two updates of the rate and TD error metrics
+	 */
+	static final int METRICS_WINDOW = 1000;
+	
+	/**
+	 * Sum of the absolute TD errors, and the number of updates, since the metrics were last updated
+	 */
+	double tdErrorSum = 0.0;
+	long tdErrorCount = 0;
+	
+	/**
+	 * If false, this agent does not set the gauges of the training metrics. A gauge holds the last value set by any agent, so
+	 * agents trained at the same time, as by {@link QLearningSearch}, would overwrite each other's values. Counters and timers add
+	 * up across agents and are always updated.
+	 */
+	boolean gauges = true;
 
 	/**
 	 * Construct a Q-Learning agent that learns from interactions with {@code opponent}.
@@ -64,12 +138,127 @@ public class QLearningAgent extends Agent
 	 */
 	public QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount)
 	{
+		this(opponent, learningRate, numEpisodes, discount, RandomSource.split(), false, false, false, !RandomSource.isSeeded());
+	}
+	
+	/**
+	 * Construct a Q-Learning agent that learns from interactions with {@code opponent}, exploring with the given random stream.
+	 * Training is reproducible if the opponent's randomness is seeded too: such an agent is always trained, never looked up in the
+	 * {@link PolicyCache}.
+	 * 
+	 * @param random the random stream used by the epsilon-greedy policy
+	 */
+	public QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount, SplittableRandom random)
+	{
+		this(opponent, learningRate, numEpisodes, discount, random, false);
+	}
+	
+	/**
+	 * Construct a Q-Learning agent that learns from interactions with {@code opponent}, optionally over canonical games only.
+	 * 
+	 * @param symmetric see {@link #symmetric}
+	 */
+	public QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount, SplittableRandom random,
+			boolean symmetric)
+	{
+		this(opponent, learningRate, numEpisodes, discount, random, symmetric, false);
+	}
+	
+	/**
+	 * Construct a Q-Learning agent that learns from interactions with {@code opponent}, optionally storing its q-values as floats.
+	 * 
+	 * @param singlePrecision see {@link #singlePrecision}
+	 */
+	public QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount, SplittableRandom random,
+			boolean symmetric, boolean singlePrecision)
+	{
+		this(opponent, learningRate, numEpisodes, discount, random, symmetric, singlePrecision, false);
+	}
+	
+	/**
+	 * Construct a Q-Learning agent that learns from interactions with {@code opponent}, optionally creating its q-values lazily.
+	 * 
+	 * @param lazy see {@link #lazy}; not with {@code singlePrecision}
+	 */
+	public QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount, SplittableRandom random,
+			boolean symmetric, boolean singlePrecision, boolean lazy)
+	{
+		this(opponent, learningRate, numEpisodes, discount, random, symmetric, singlePrecision, lazy, false);
+	}
+	
+	/**
+	 * @param cached see {@link #cached}
+	 */
+	private QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount, SplittableRandom random,
+			boolean symmetric, boolean singlePrecision, boolean lazy, boolean cached)
+	{
+		if (singlePrecision && lazy)
+			throw new IllegalArgumentException("The q-values are either single precision or lazily created, not both");
+		
 		env=new TTTEnvironment(opponent);
 		this.alpha = learningRate;
 		this.numEpisodes = numEpisodes;
 		this.discount = discount;
+		this.random = random;
+		this.symmetric = symmetric;
+		this.singlePrecision = singlePrecision;
+		this.lazy = lazy;
+		this.cached = cached;
+		solve();
+	}
+	
+	/**
+	 * Construct an untrained Q-Learning agent with its q-values initialised, to be trained a few episodes at a time with
+	 * {@link #playEpisode}, as {@link QLearningSearch} does. It has no policy until one is extracted.
+	 */
+	QLearningAgent(Agent opponent, double learningRate, double discount, double epsilon, SplittableRandom random)
+	{
+		env=new TTTEnvironment(opponent);
+		this.alpha = learningRate;
+		this.numEpisodes = 0;
+		this.discount = discount;
+		this.epsilon = epsilon;
+		this.random = random;
+		initQTable();
+	}
+	
+	/**
+	 * Trains this agent and sets its policy, unless a policy learnt against the same kind of opponent with the same rewards and
+	 * parameters is already in the {@link PolicyCache}. A cached policy is one particular outcome of (random) training. Only
+	 * {@link #cached} agents playing one of the built-in opponents, whose class says which policy they play, use the cache; a
+	 * {@link #lazy} agent is always trained, so that its q-table can be reported.
+	 */
+	void solve()
+	{
+		Agent o = env.game.o;
+		if (lazy || !cached || !builtIn(o)) {
+			initQTable();
+			train();
+			return;
+		}
+		
+		String key = PolicyCache.key(getClass().getSimpleName(), env.winReward, env.loseReward, env.livingReward, env.drawReward,
+				"opponent", o.getClass().getName(), "alpha", alpha, "episodes", numEpisodes, "discount", discount,
+				"epsilon", epsilon, "symmetric", symmetric);
+		if (singlePrecision)
+			key += " singlePrecision=true";
+		super.policy = PolicyCache.get(key, symmetric);
+		if (super.policy != null)
+			return;
+		
 		initQTable();
 		train();
+		PolicyCache.put(key, super.policy);
+	}
+	
+	/**
+	 * @return true if {@code o} is a {@link RandomAgent}, {@link AggressiveAgent} or {@link DefensiveAgent}, rather than, say, an
+	 *         {@link Agent} playing some trained or loaded policy
+	 */
+	static boolean builtIn(Agent o)
+	{
+		Class<?> c = o.getClass();
+		return c == RandomAgent.class || c == AggressiveAgent.class || c == DefensiveAgent.class;
 	}
 	
 	/**
@@ -77,10 +266,34 @@ public class QLearningAgent extends Agent
 	 */
 	protected void initQTable()
 	{
+		long start = initTimer.start();
+		if (lazy) {
+			// no state is enumerated up front, so there is no MDPCompilation event
+			sparseTable = new SparseQTable(MNK.TIC_TAC_TOE, 0.0);
+			initTimer.stop(start);
+			return;
+		}
+		
+		TrainingEvents.MDPCompilation event = new TrainingEvents.MDPCompilation();
+		event.begin();
+		if (singlePrecision) {
+			compactTable = new CompactQTable(CompiledMDP.get(MNK.TIC_TAC_TOE, CompiledMDP.Layout.LAYERED), true);
+			initTimer.stop(start);
+			if (event.shouldCommit()) {
+				event.solver = "QLearningAgent";
+				event.states = compactTable.size();
+				event.commit();
+			}
+			return;
+		}
+		
 		// All valid games where it is X's turn, or it's terminal
 		List<Game> allGames = Game.generateAllValidGames('X');
 		
 		for(Game g: allGames) {
+			if (symmetric && !Symmetry.isCanonical(g))
+				continue;
+			
 			List<Move> moves = g.getPossibleMoves();
 			
 			for(Move m: moves) {
@@ -89,6 +302,12 @@ public class QLearningAgent extends Agent
 				//System.out.println("Move:"+m);
 			}
 		}
+		initTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.solver = "QLearningAgent";
+			event.states = this.qTable.size();
+			event.commit();
+		}
 	}
 	
 	/**
@@ -108,6 +327,11 @@ public class QLearningAgent extends Agent
 	 */
 	public Move exploit(Game g)
 	{
+		if (compactTable != null)
+			return compactTable.best(g);
+		else if (sparseTable != null)
+			return sparseTable.best(g);
+		
 		Move action = null;
 		
 		double maxQ = -Double.MAX_VALUE;
@@ -133,57 +357,43 @@ public class QLearningAgent extends Agent
 	 */
 	public void train()
 	{
+		long start = trainTimer.start();
+		long windowStart = System.nanoTime();
+		if (gauges)
+			epsilonGauge.set(this.epsilon);
+		TrainingEvents.QLearningEpisodes batch = new TrainingEvents.QLearningEpisodes();
+		batch.begin();
+		
 		for (int i = 0; i < this.numEpisodes; i++) {
-			// Start at the initial game state
-			Game currentState = env.getCurrentGameState();
+			this.playEpisode();
 			
-			while (!currentState.isTerminal()) {
-				// Get the actions associated with the state as a List type
-				List<Move> possibleActions = new ArrayList<Move>(qTable.get(currentState).keySet());
-
-				// Pick an action out of the state based on epsilon-greedy
-				Move action = null;
-				if (new Random().nextDouble() <= this.epsilon) {
-					// Explore (pick random action)
-					action = possibleActions.get(new Random().nextInt(possibleActions.size()));
-				} else {
-					// Exploit (pick action according to current policy (max q-value))
-					action = this.exploit(currentState);
-				}
-
-				try {
-					// Execute the chosen action and get the new Game state
-					Outcome o = env.executeMove(action);
-
-					// Calculate the sample for the chosen action
-					double sample;
-					if (o.sPrime.isTerminal()) {
-						sample = o.localReward;
-					} else {
-						sample = o.localReward + (this.discount * this.qTable.getQValue(o.sPrime, this.exploit(o.sPrime)));
-					}
-
-					// Calculate the new q-value and update it
-					double currentQ  = qTable.getQValue(o.s, action);
-					double newQ = ((1 - this.alpha) * currentQ) + (this.alpha * sample);
-					
-					// Update the q-value of the action taken out of the state
-					qTable.addQValue(o.s, action, newQ);
-				} catch (IllegalMoveException e) {
-					// Move should never be illegal but have to catch the exception to keep Java happy anyway
-					continue;
+			if ((i + 1) % METRICS_WINDOW == 0) {
+				long now = System.nanoTime();
+				if (gauges)
+					episodesPerSecond.set(METRICS_WINDOW * 1e9 / (now - windowStart));
+				windowStart = now;
+				
+				batch.end();
+				if (batch.shouldCommit()) {
+					batch.episodes = METRICS_WINDOW;
+					batch.updates = tdErrorCount;
+					batch.averageTdError = tdErrorCount > 0 ? tdErrorSum / tdErrorCount : 0.0;
+					batch.epsilon = this.epsilon;
+					batch.commit();
 				}
+				batch = new TrainingEvents.QLearningEpisodes();
+				batch.begin();
+				
+				this.reportTdError();
 			}
 			
 			// Nice console output to track learning progress
 			if (i % 10000 == 0 && i > 0) {
 				System.out.println("Q-Learning agent completed " + i + " of " + this.numEpisodes + " episodes");
 			}
-
-			// Start a new game
-			env = new TTTEnvironment(currentState.o);
 		}
 
+		trainTimer.stop(start);
 		this.policy = this.extractPolicy();
 
 		if (this.policy == null) {
@@ -192,6 +402,123 @@ public class QLearningAgent extends Agent
 		}
 	}
 	
+	/**
+	 * Plays a single training episode (game) against the environment's opponent, updating the q-values after every move, and
+	 * starts a new game.
+	 */
+	protected void playEpisode()
+	{
+		// Start at the initial game state
+		Game currentState = env.getCurrentGameState();
+		
+		while (!currentState.isTerminal()) {
+			// In symmetric mode, learn on the canonical game and map the chosen action back to play it
+			int transform = symmetric ? Symmetry.canonicalTransform(currentState) : 0;
+			Game state = transform == 0 ? currentState : Symmetry.apply(currentState, transform);
+			
+			// Get the actions associated with the state as a List type
+			List<Move> possibleActions;
+			if (compactTable != null)
+				possibleActions = compactTable.moves(state);
+			else if (sparseTable != null)
+				possibleActions = sparseTable.moves(state);
+			else
+				possibleActions = new ArrayList<Move>(qTable.get(state).keySet());
+
+			// Pick an action out of the state based on epsilon-greedy
+			Move action = null;
+			if (this.random.nextDouble() <= this.epsilon) {
+				// Explore (pick random action)
+				action = possibleActions.get(this.random.nextInt(possibleActions.size()));
+			} else {
+				// Exploit (pick action according to current policy (max q-value))
+				action = this.exploit(state);
+			}
+
+			try {
+				// Execute the chosen action and get the new Game state
+				Outcome o = env.executeMove(transform == 0 ? action : Symmetry.invert(action, transform));
+
+				// Calculate the sample for the chosen action
+				double sample;
+				if (o.sPrime.isTerminal()) {
+					sample = o.localReward;
+				} else {
+					Game next = symmetric ? Symmetry.canonical(o.sPrime) : o.sPrime;
+					sample = o.localReward + (this.discount * this.getQValue(next, this.exploit(next)));
+				}
+
+				// The environment's game has moved on, so use its copy of the state the action was taken in, unless that was transformed
+				if (transform == 0)
+					state = o.s;
+				
+				// Calculate the new q-value and update it
+				double currentQ  = getQValue(state, action);
+				double newQ = ((1 - this.alpha) * currentQ) + (this.alpha * sample);
+				tdErrorSum += Math.abs(sample - currentQ);
+				tdErrorCount++;
+				
+				// Update the q-value of the action taken out of the state
+				if (compactTable != null)
+					compactTable.addQValue(state, action, newQ);
+				else if (sparseTable != null)
+					sparseTable.addQValue(state, action, newQ);
+				else
+					qTable.addQValue(state, action, newQ);
+			} catch (IllegalMoveException e) {
+				// Move should never be illegal but have to catch the exception to keep Java happy anyway
+				continue;
+			}
+		}
+		
+		// Start a new game
+		env.reset();
+		episodes.increment();
+	}
+	
+	/**
+	 * @return Q(g,m), from whichever table holds the q-values
+	 */
+	double getQValue(Game g, Move m)
+	{
+		if (compactTable != null)
+			return compactTable.getQValue(g, m);
+		else if (sparseTable != null)
+			return sparseTable.getQValue(g, m);
+		
+		return qTable.getQValue(g, m);
+	}
+	
+	/**
+	 * @return the q-values in {@link #lazy} mode, null otherwise
+	 */
+	public SparseQTable getSparseTable()
+	{
+		return sparseTable;
+	}
+	
+	/**
+	 * Publishes the average absolute TD error since the last call, and the number of updates made, to the training metrics, and
+	 * the size of the q-table if it is compact or sparse. Only the number of updates is published unless {@link #gauges}.
+	 */
+	void reportTdError()
+	{
+		if (gauges) {
+			if (tdErrorCount > 0)
+				averageTdError.set(tdErrorSum / tdErrorCount);
+			if (compactTable != null)
+				tableFootprint.set(compactTable.footprint());
+			if (sparseTable != null) {
+				statesVisited.set(sparseTable.visitedStates());
+				tableFootprint.set(sparseTable.footprint());
+			}
+		}
+		
+		statesProcessed.add(tdErrorCount);
+		tdErrorSum = 0.0;
+		tdErrorCount = 0;
+	}
+	
 	/**
 	 * Implement this method. It should use the q-values in the {@code qTable} to extract a policy and return it.
 	 *
@@ -199,10 +526,22 @@ public class QLearningAgent extends Agent
 	 */
 	public Policy extractPolicy()
 	{
-		Policy policy = new Policy();
+		long start = extractTimer.start();
+		TrainingEvents.PolicyExtraction event = new TrainingEvents.PolicyExtraction();
+		event.begin();
+		Policy policy = symmetric ? new SymmetricPolicy() : new Policy();
 		
-		// Iterate over every stored state
-		for (Game state : qTable.keySet()) {
+		if (compactTable != null) {
+			CompiledMDP mdp = compactTable.mdp;
+			for (int s = 0; s < mdp.states(); s++) {
+				Game state = mdp.game(s);
+				if (!symmetric || Symmetry.isCanonical(state))
+					policy.policy.put(state, mdp.move(compactTable.best(s)));
+			}
+		}
+		
+		// Iterate over every stored state (none if they are in the compact or sparse table)
+		for (Game state : sparseTable != null ? sparseTable.states() : qTable.keySet()) {
 			// Work out best action based on highest q-value
 			Move bestAction = this.exploit(state);
 			
@@ -211,6 +550,12 @@ public class QLearningAgent extends Agent
 			}
 		}
 
+		extractTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.solver = "QLearningAgent";
+			event.states = policy.policy.size();
+			event.commit();
+		}
 		return policy;
 	}
 	
@@ -0,0 +1,403 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * A search over the hyperparameters of {@link QLearningAgent} (learning rate, epsilon and discount) by successive halving: every
+ * configuration is trained for a few episodes, on a thread pool, and its policy evaluated exactly (see {@link ExactEvaluator})
+ * against the chosen opponent. Only the best {@code 1/}{@link #reduction} of the trials carry on, with {@link #reduction} times as
+ * many episodes, and so on until the survivors have been trained for the full {@link #maxEpisodes}. Most of the episodes are
+ * spent on the promising configurations, instead of training every configuration to the end.
+ *
+ * A policy's score is its expected return under the TTTMDP rewards, discounted by {@link #evaluationDiscount}. This is the same for
+ * every trial, whatever discount it learns with, so that the scores of different discounts can be compared.
+ *
+ * The trials train at the same time, so they do not set the gauges of {@link QLearningAgent}'s training metrics (epsilon, TD
+ * error and so on), which could only show whichever trial wrote last; the number of updates is still counted.
+ *
+ * Every trial learns with its own random streams, split off the search's stream in the order of the configurations, and trials
+ * are pruned by score then by that order. For a given seed the results are therefore the same whatever the number of threads.
+ *
+ * @author ae187
+ *
+ */
+public class QLearningSearch {
+
+	/**
+	 * The hyperparameters of one trial
+	 */
+	public static class Config {
+		public final double alpha;
+		public final double epsilon;
+		public final double discount;
+
+		public Config(double alpha, double epsilon, double discount) {
+			this.alpha = alpha;
+			this.epsilon = epsilon;
+			this.discount = discount;
+		}
+
+		public String toString() {
+			return "alpha " + alpha + ", epsilon " + epsilon + ", discount " + discount;
+		}
+	}
+
+	/**
+	 * One configuration being trained, and its scores so far
+	 */
+	public static class Trial {
+		public final Config config;
+		/**
+		 * the expected return of the policy at each checkpoint it reached, discounted by {@link QLearningSearch#evaluationDiscount},
+		 * in order
+		 */
+		public final List<Double> scores = new ArrayList<Double>();
+		/**
+		 * the exact outcomes of the policy at the last checkpoint
+		 */
+		public ExactEvaluator.Evaluation evaluation;
+
+		final int index;
+		final QLearningAgent agent;
+		int episodes = 0;
+
+		Trial(int index, Config config, QLearningAgent agent) {
+			this.index = index;
+			this.config = config;
+			this.agent = agent;
+		}
+
+		/**
+		 * @return the number of episodes trained for
+		 */
+		public int episodes() {
+			return episodes;
+		}
+
+		/**
+		 * @return the score at the last checkpoint
+		 */
+		public double score() {
+			return scores.get(scores.size() - 1);
+		}
+
+		/**
+		 * @return the policy learnt so far
+		 */
+		public Policy policy() {
+			return agent.getPolicy();
+		}
+
+		public String toString() {
+			return config + ": " + episodes + " episodes, score " + String.format("%.4f", score()) + " (" + evaluation + ")";
+		}
+	}
+
+	/**
+	 * The number of worker threads
+	 */
+	int threads;
+
+	/**
+	 * The episodes every trial is trained for before the first checkpoint, and the episodes the best trials end up trained for
+	 */
+	int minEpisodes = 5000;
+	int maxEpisodes = 60000;
+
+	/**
+	 * The factor by which the trials are thinned out, and their episodes multiplied, at every checkpoint
+	 */
+	int reduction = 2;
+
+	/**
+	 * The opponent the trials train against, and the model of it that their policies are evaluated against
+	 */
+	Function<SplittableRandom, Agent> opponent = RandomAgent::new;
+	OpponentModel model = OpponentModel.UNIFORM;
+
+	/**
+	 * The side that starts the games the policies are evaluated on
+	 */
+	char starter = 'X';
+
+	/**
+	 * The discount of the expected return the policies are scored by
+	 */
+	double evaluationDiscount = 0.9;
+
+	/**
+	 * The stream the trials' random streams are split off, see {@link #setSeed}
+	 */
+	SplittableRandom random = RandomSource.split();
+
+	/**
+	 * A search using one worker thread per available processor
+	 */
+	public QLearningSearch() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public QLearningSearch(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("A search needs at least one thread");
+
+		this.threads = threads;
+	}
+
+	/**
+	 * Makes the following searches reproducible.
+	 */
+	public void setSeed(long seed) {
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * @param minEpisodes
+	 *            the episodes before the first checkpoint
+	 * @param maxEpisodes
+	 *            the episodes the best trials are trained for
+	 */
+	public void setEpisodes(int minEpisodes, int maxEpisodes) {
+		if (minEpisodes < 1 || maxEpisodes < minEpisodes)
+			throw new IllegalArgumentException("Need 0 < minEpisodes <= maxEpisodes");
+
+		this.minEpisodes = minEpisodes;
+		this.maxEpisodes = maxEpisodes;
+	}
+
+	/**
+	 * @param reduction
+	 *            the factor by which the trials are thinned out at every checkpoint, at least 2
+	 */
+	public void setReduction(int reduction) {
+		if (reduction < 2)
+			throw new IllegalArgumentException("The reduction factor should be at least 2");
+
+		this.reduction = reduction;
+	}
+
+	/**
+	 * @param name
+	 *            the opponent to train against and evaluate against: random, agg or def
+	 */
+	public void setOpponent(String name) {
+		this.model = OpponentModel.forName(name);
+		this.opponent = Tournament.entrant(name).factory;
+	}
+
+	/**
+	 * @param starter
+	 *            the side that starts the games the policies are evaluated on, 'X' or 'O'
+	 */
+	public void setStarter(char starter) {
+		if (starter != 'X' && starter != 'O')
+			throw new IllegalArgumentException("Starter should be either 'X' or 'O'");
+
+		this.starter = starter;
+	}
+
+	/**
+	 * @param evaluationDiscount
+	 *            the discount of the expected return the policies are scored by, see {@link #evaluationDiscount}
+	 */
+	public void setEvaluationDiscount(double evaluationDiscount) {
+		if (evaluationDiscount <= 0 || evaluationDiscount > 1)
+			throw new IllegalArgumentException("The evaluation discount should be in (0, 1]");
+
+		this.evaluationDiscount = evaluationDiscount;
+	}
+
+	/**
+	 * @return every combination of the given hyperparameters
+	 */
+	public static List<Config> grid(double[] alphas, double[] epsilons, double[] discounts) {
+		List<Config> grid = new ArrayList<Config>();
+		for (double alpha : alphas)
+			for (double epsilon : epsilons)
+				for (double discount : discounts)
+					grid.add(new Config(alpha, epsilon, discount));
+
+		return grid;
+	}
+
+	/**
+	 * Runs a search over {@code configs}.
+	 *
+	 * @return every trial, the furthest trained first and, among those, the best scoring first: the first trial is the best
+	 *         configuration
+	 */
+	public List<Trial> run(List<Config> configs) {
+		List<Trial> trials = new ArrayList<Trial>();
+		for (Config config : configs) {
+			SplittableRandom agentRandom = random.split();
+			Agent o = opponent.apply(random.split());
+			QLearningAgent agent = new QLearningAgent(o, config.alpha, config.discount, config.epsilon, agentRandom);
+			agent.env.setListener(GameListener.NONE);
+			agent.gauges = false;
+			trials.add(new Trial(trials.size(), config, agent));
+		}
+
+		Comparator<Trial> ranking = Comparator.comparingInt(Trial::episodes).reversed()
+				.thenComparing(Comparator.comparingDouble(Trial::score).reversed()).thenComparingInt(t -> t.index);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Trial> alive = new ArrayList<Trial>(trials);
+			int episodes = minEpisodes;
+			while (true) {
+				List<Future<?>> checkpoints = new ArrayList<Future<?>>();
+				for (Trial trial : alive) {
+					final int target = episodes;
+					checkpoints.add(pool.submit(() -> checkpoint(trial, target)));
+				}
+				for (Future<?> checkpoint : checkpoints)
+					checkpoint.get();
+
+				if (episodes == maxEpisodes)
+					break;
+
+				alive.sort(ranking);
+				alive = new ArrayList<Trial>(alive.subList(0, (alive.size() + reduction - 1) / reduction));
+				episodes = (int) Math.min((long) episodes * reduction, maxEpisodes);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Search interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+
+		trials.sort(ranking);
+		return trials;
+	}
+
+	/**
+	 * Trains {@code trial} up to {@code episodes} episodes and evaluates its policy.
+	 */
+	void checkpoint(Trial trial, int episodes) {
+		for (; trial.episodes < episodes; trial.episodes++)
+			trial.agent.playEpisode();
+
+		trial.agent.reportTdError();
+		trial.agent.numEpisodes = trial.episodes;
+		trial.agent.policy = trial.agent.extractPolicy();
+		trial.evaluation = new ExactEvaluator(trial.agent.policy, model, new TTTMDP(), evaluationDiscount).evaluate(starter);
+		trial.scores.add(trial.evaluation.expectedReturn);
+	}
+
+	public static final String help = " -h this menu" + "\n -a the learning rates: -a <a1,a2,...>"
+			+ "\n -e the epsilons: -e <e1,e2,...>" + "\n -d the discounts: -d <d1,d2,...>"
+			+ "\n -g the discount the trials are scored with: -g <discount>"
+			+ "\n -o the opponent to train and evaluate against: -o <random,agg,def>"
+			+ "\n -m the episodes before the first checkpoint: -m <episodes>"
+			+ "\n -n the episodes the best trials are trained for: -n <episodes>"
+			+ "\n -r the factor trials are thinned out by at each checkpoint: -r <factor>"
+			+ "\n -t the number of threads: -t <threads>" + "\n -seed make the run reproducible: -seed <long>";
+
+	/**
+	 * Searches every combination of the given hyperparameters and prints the trials, best first, e.g.
+	 * {@code -a 0.05,0.1,0.2,0.5 -e 0.05,0.1,0.2 -d 0.8,0.9,0.99}
+	 */
+	public static void main(String a[]) {
+		List<String> args = Arrays.asList(a);
+		if (args.contains("-h")) {
+			System.out.println(help);
+			return;
+		}
+
+		double[] alphas = { 0.05, 0.1, 0.2, 0.5 };
+		double[] epsilons = { 0.05, 0.1, 0.2 };
+		double[] discounts = { 0.9 };
+		String opponent = "random";
+		int minEpisodes = 5000;
+		int maxEpisodes = 60000;
+		int reduction = 2;
+		double evaluationDiscount = 0.9;
+		int threads = Runtime.getRuntime().availableProcessors();
+		Long seed = null;
+		Iterator<String> iter = args.iterator();
+
+		while (iter.hasNext()) {
+			String cur = iter.next();
+			if (!iter.hasNext()) {
+				System.out.println("Error: " + cur + " should be followed by a value\n" + help);
+				return;
+			}
+			String next = iter.next();
+			try {
+				switch (cur) {
+				case "-a":
+					alphas = ParameterSweep.parse(next);
+					break;
+				case "-e":
+					epsilons = ParameterSweep.parse(next);
+					break;
+				case "-d":
+					discounts = ParameterSweep.parse(next);
+					break;
+				case "-g":
+					evaluationDiscount = Double.parseDouble(next);
+					break;
+				case "-o":
+					opponent = next;
+					break;
+				case "-m":
+					minEpisodes = Integer.parseInt(next);
+					break;
+				case "-n":
+					maxEpisodes = Integer.parseInt(next);
+					break;
+				case "-r":
+					reduction = Integer.parseInt(next);
+					break;
+				case "-t":
+					threads = Integer.parseInt(next);
+					break;
+				case "-seed":
+					seed = Long.parseLong(next);
+					break;
+				default:
+					System.out.println("Unrecognised option: " + cur + "\n" + help);
+					return;
+				}
+			} catch (NumberFormatException e) {
+				System.out.println("Error: the value of " + cur + " is not a number: " + next + "\n" + help);
+				return;
+			}
+		}
+
+		QLearningSearch search = new QLearningSearch(threads);
+		search.setEpisodes(minEpisodes, maxEpisodes);
+		search.setReduction(reduction);
+		search.setOpponent(opponent);
+		search.setEvaluationDiscount(evaluationDiscount);
+		if (seed != null)
+			search.setSeed(seed);
+
+		long start = System.nanoTime();
+		List<Trial> trials = search.run(grid(alphas, epsilons, discounts));
+		for (Trial trial : trials)
+			System.out.println(trial);
+
+		long episodes = trials.stream().mapToLong(Trial::episodes).sum();
+		System.out.println(String.format("Trained %d trials for %d episodes in %.1f s (%d episodes without pruning)", trials.size(),
+				episodes, (System.nanoTime() - start) / 1e9, (long) trials.size() * maxEpisodes));
+		System.out.println("Best: " + trials.get(0).config);
+	}
+
+}
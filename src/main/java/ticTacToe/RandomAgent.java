@@ -1,5 +1,7 @@
 package ticTacToe;
 
+import java.util.SplittableRandom;
+
 
 /**
  * A random agent, i.e. ones with a {@link RandomPolicy} that picks a move randomly from all available moves with equal probability.  
@@ -16,6 +18,14 @@ public class RandomAgent extends Agent {
 		
 	}
 	
+	/**
+	 * @param r the random stream used to pick moves
+	 */
+	public RandomAgent(SplittableRandom r) {
+		super(new RandomPolicy(r));
+		
+	}
+	
 	
 
 }
@@ -3,7 +3,7 @@ package ticTacToe;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * This is a Policy which picks an move randomly with equal probability from the available moves. 
@@ -12,7 +12,20 @@ import java.util.Random;
  */
 public class RandomPolicy extends Policy{
 
-	Random r = new Random();
+	SplittableRandom r;
+	
+	/**
+	 * A random policy using a stream split off {@link RandomSource}
+	 */
+	public RandomPolicy()
+	{
+		this(RandomSource.split());
+	}
+	
+	public RandomPolicy(SplittableRandom r)
+	{
+		this.r=r;
+	}
 	
 	@Override
 	public Move getMove(Game g) {
@@ -20,8 +33,8 @@ public class RandomPolicy extends Policy{
 		
 		List<IndexPair> pairs=new ArrayList<IndexPair>();
 		
-		for(int i=0;i<3;i++)
-			for(int j=0;j<3;j++)
+		for(int i=0;i<g.getMNK().rows;i++)
+			for(int j=0;j<g.getMNK().cols;j++)
 			{
 				if (g.getBoard()[i][j]==' ')
 					pairs.add(new IndexPair(i,j));
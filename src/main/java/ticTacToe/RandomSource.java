@@ -0,0 +1,50 @@
+package ticTacToe;
+
+import java.util.SplittableRandom;
+
+/**
+ * The root of all randomness used by the agents, environments and trainers. Every stochastic component owns a
+ * {@link SplittableRandom} that is either given to it explicitly or split off this root when it is created. Seeding the root with
+ * {@link #setSeed} before creating the agents therefore makes a whole run reproducible, and splitting one stream per worker thread
+ * (see {@link Tournament}) keeps parallel runs reproducible and free of contention.
+ * 
+ * Unseeded, the root is seeded from the system clock like {@link java.util.Random}.
+ * 
+ * @author ae187
+ *
+ */
+public final class RandomSource {
+
+	static SplittableRandom root = new SplittableRandom();
+
+	/**
+	 * True once {@link #setSeed} has been called
+	 */
+	static boolean seeded = false;
+
+	private RandomSource() {
+	}
+
+	/**
+	 * Re-seeds the root. Components created afterwards get the same streams, in the same order, for the same seed.
+	 */
+	public static synchronized void setSeed(long seed) {
+		root = new SplittableRandom(seed);
+		seeded = true;
+	}
+
+	/**
+	 * @return true if the root has been seeded, so that the streams split off it are reproducible
+	 */
+	public static synchronized boolean isSeeded() {
+		return seeded;
+	}
+
+	/**
+	 * @return a new, independent, stream split off the root
+	 */
+	public static synchronized SplittableRandom split() {
+		return root.split();
+	}
+
+}
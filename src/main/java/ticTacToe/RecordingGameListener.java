@@ -0,0 +1,54 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the moves and the result of every game played out. Each thread records its own game in progress, so one recorder can be
+ * shared by games played concurrently.
+ *
+ * @author ae187
+ *
+ */
+public class RecordingGameListener implements GameListener {
+
+	/**
+	 * A recorded game: the moves in the order they were played, and the final game state.
+	 */
+	public static class Recording {
+		public final List<Move> moves = new ArrayList<Move>();
+		public int state = Game.ONGOING;
+
+		public String toString() {
+			return moves + " -> " + state;
+		}
+	}
+
+	final ThreadLocal<Recording> current = new ThreadLocal<Recording>();
+
+	final List<Recording> recordings = Collections.synchronizedList(new ArrayList<Recording>());
+
+	public void gameStarted(Game g) {
+		current.set(new Recording());
+	}
+
+	public void movePlayed(Game g, Move m) {
+		current.get().moves.add(m);
+	}
+
+	public void gameEnded(Game g) {
+		Recording r = current.get();
+		r.state = g.getState();
+		recordings.add(r);
+		current.remove();
+	}
+
+	/**
+	 * @return the games recorded so far, in the order they ended
+	 */
+	public List<Recording> getRecordings() {
+		return recordings;
+	}
+
+}
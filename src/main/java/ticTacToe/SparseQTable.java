@@ -0,0 +1,121 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Q-Table that only holds the q-values that have been learnt: Q(g,m) is {@link #initialValue} until it is first set, and only
+ * then takes an entry, in a {@link LongDoubleMap} keyed by the position and the cell of the move. The games the learner has been
+ * in are kept too, so that a policy can be extracted for them. Against opponents that never let some games happen, those games
+ * take no memory, and nothing is allocated before training starts.
+ *
+ * A position's key is its two bitboards side by side, so it fits boards of up to 28 cells.
+ *
+ * @author ae187
+ *
+ */
+public class SparseQTable {
+
+	final MNK mnk;
+
+	/**
+	 * The q-value of every (game, move) pair that has not been set
+	 */
+	final double initialValue;
+
+	/**
+	 * The q-values set so far, and the games visited, by key
+	 */
+	final LongDoubleMap values = new LongDoubleMap();
+	final LongByteMap visited = new LongByteMap();
+
+	public SparseQTable(MNK mnk, double initialValue) {
+		if (2 * mnk.cells() + 6 > 63)
+			throw new IllegalArgumentException("Board too large for a sparse q-table: " + mnk);
+
+		this.mnk = mnk;
+		this.initialValue = initialValue;
+	}
+
+	long stateKey(Game g) {
+		return g.os << mnk.cells() | g.xs;
+	}
+
+	long key(Game g, Move m) {
+		return stateKey(g) << 6 | mnk.cell(m.x, m.y);
+	}
+
+	/**
+	 * Records that the learner has been in {@code g}.
+	 */
+	public void visit(Game g) {
+		visited.put(stateKey(g), (byte) 1);
+	}
+
+	/**
+	 * @return the legal moves of {@code g}, which is recorded as visited
+	 */
+	public List<Move> moves(Game g) {
+		visit(g);
+		return g.getPossibleMoves();
+	}
+
+	public double getQValue(Game g, Move m) {
+		return values.get(key(g, m), initialValue);
+	}
+
+	public void addQValue(Game g, Move m, double v) {
+		values.put(key(g, m), v);
+	}
+
+	/**
+	 * @return the legal move of {@code g} with the highest q-value, the last of them if there are several
+	 */
+	public Move best(Game g) {
+		Move best = null;
+		double max = -Double.MAX_VALUE;
+		for (Move m : moves(g)) {
+			double q = getQValue(g, m);
+			if (q >= max) {
+				max = q;
+				best = m;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return the games visited, with X to move
+	 */
+	public List<Game> states() {
+		long mask = (1L << mnk.cells()) - 1;
+		List<Game> states = new ArrayList<Game>();
+		for (int slot = visited.next(-1); slot >= 0; slot = visited.next(slot)) {
+			long key = visited.keyAt(slot);
+			states.add(Game.of(mnk, key & mask, key >>> mnk.cells(), 'X'));
+		}
+		return states;
+	}
+
+	/**
+	 * @return the number of games visited
+	 */
+	public int visitedStates() {
+		return visited.size();
+	}
+
+	/**
+	 * @return the number of q-values set
+	 */
+	public int size() {
+		return values.size();
+	}
+
+	/**
+	 * @return the number of bytes taken by the q-values and the games visited
+	 */
+	public long footprint() {
+		return values.footprint() + visited.footprint();
+	}
+
+}
@@ -0,0 +1,68 @@
+package ticTacToe;
+
+/**
+ * A ranking of the positions of an m,n,k game: a bijection between a set of positions, given as the bitboards of X and O, and the
+ * indices {@code 0..size()-1}, so that per-state data can be kept in flat arrays or files instead of maps keyed by {@link Game}.
+ *
+ * Indices are layer-major: the positions with {@code n} marks on the board, layer {@code n}, occupy the indices from
+ * {@link #layerStart(int) layerStart(n)} up to {@code layerStart(n+1)}. Every move goes from one layer to the next, so a solver
+ * that walks the layers in order walks the states in the order the game reaches them (or, backwards, the order in which their
+ * values become known).
+ *
+ * @author ae187
+ *
+ */
+public interface StateIndex {
+
+	/**
+	 * @return the game whose positions are ranked
+	 */
+	MNK mnk();
+
+	/**
+	 * @return the number of indices
+	 */
+	long size();
+
+	/**
+	 * @param n
+	 *            a number of marks, from 0 to one more than the number of cells
+	 * @return the first index of layer {@code n}; {@code layerStart(cells + 1)} is {@link #size()}
+	 */
+	long layerStart(int n);
+
+	/**
+	 * @param xs
+	 *            the cells of X
+	 * @param os
+	 *            the cells of O
+	 * @return true if the position has an index
+	 */
+	boolean contains(long xs, long os);
+
+	/**
+	 * @param xs
+	 *            the cells of X
+	 * @param os
+	 *            the cells of O
+	 * @return the index of the position, which the index should {@link #contains contain}
+	 */
+	long rank(long xs, long os);
+
+	/**
+	 * The inverse of {@link #rank(long, long)}.
+	 *
+	 * @param index
+	 * @param stones
+	 *            receives the cells of X in {@code stones[0]} and those of O in {@code stones[1]}
+	 */
+	void unrank(long index, long[] stones);
+
+	/**
+	 * @return the index of the position of {@code g}
+	 */
+	default long rank(Game g) {
+		return rank(g.xs, g.os);
+	}
+
+}
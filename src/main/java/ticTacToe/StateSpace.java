@@ -0,0 +1,70 @@
+package ticTacToe;
+
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Streams over the positions of an m,n,k game, enumerated without holding them: a position is produced from its index in a
+ * {@link CombinatorialIndex} when the stream reaches it, so the only memory used is that of the positions in flight.
+ *
+ * The streams are layer-major: every position with {@code n} marks comes before any with {@code n+1}, so each layer holds the
+ * positions one move further from the empty board than the layer before. They are built on {@link LongStream#range}, which splits
+ * evenly into index ranges, so calling {@code parallel()} on them spreads the work over the common fork-join pool.
+ *
+ * @author ae187
+ *
+ */
+public final class StateSpace {
+
+	private StateSpace() {
+	}
+
+	/**
+	 * @return every index of {@code index}, in layer order
+	 */
+	public static LongStream indices(StateIndex index) {
+		return LongStream.range(0, index.size());
+	}
+
+	/**
+	 * @return the indices of the positions of layer {@code n} of {@code index}, i.e. with {@code n} marks
+	 */
+	public static LongStream layer(StateIndex index, int n) {
+		return LongStream.range(index.layerStart(n), index.layerStart(n + 1));
+	}
+
+	/**
+	 * Every valid game where it is {@code xo}'s turn, and every terminal game, as listed by {@link Game#generateAllValidGames}: a
+	 * position where X and O have as many marks can be either player's turn, otherwise it is the turn of whoever has fewer.
+	 *
+	 * @param mnk
+	 * @param xo
+	 *            'X' or 'O'
+	 * @return the games, in layer order
+	 */
+	public static Stream<Game> games(MNK mnk, char xo) {
+		if (xo != 'X' && xo != 'O')
+			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+
+		char other = xo == 'X' ? 'O' : 'X';
+		CombinatorialIndex index = CombinatorialIndex.reachable(mnk);
+		return indices(index).mapToObj(i -> {
+			long[] stones = new long[2];
+			index.unrank(i, stones);
+			long xs = stones[0], os = stones[1];
+			boolean terminal = mnk.isWin(xs) || mnk.isWin(os) || (xs | os) == mnk.full;
+			int lead = Long.bitCount(os) - Long.bitCount(xs);
+			boolean xoToMove = lead == 0 || (lead > 0) == (xo == 'X');
+
+			if (xoToMove && lead == 0 && terminal)
+				return Stream.of(Game.of(mnk, xs, os, xo), Game.of(mnk, xs, os, other));
+			else if (xoToMove)
+				return Stream.of(Game.of(mnk, xs, os, xo));
+			else if (terminal)
+				return Stream.of(Game.of(mnk, xs, os, other));
+
+			return Stream.<Game> empty();
+		}).flatMap(s -> s);
+	}
+
+}
@@ -0,0 +1,32 @@
+package ticTacToe;
+
+import java.util.HashMap;
+
+/**
+ * A policy that only stores moves for canonical games (see {@link Symmetry}). Any other game is mapped to its canonical
+ * representative, and the move found there is mapped back through the inverse transform.
+ *
+ * @author ae187
+ *
+ */
+public class SymmetricPolicy extends Policy {
+
+	/**
+	 * @param policy the moves for canonical games
+	 */
+	public SymmetricPolicy(HashMap<Game, Move> policy) {
+		super(policy);
+	}
+
+	public SymmetricPolicy()
+	{}
+
+	@Override
+	public Move getMove(Game g) {
+		int t = Symmetry.canonicalTransform(g);
+		Move m = super.getMove(t == 0 ? g : Symmetry.apply(g, t));
+
+		return m == null ? null : Symmetry.invert(m, t);
+	}
+
+}
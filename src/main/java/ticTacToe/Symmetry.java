@@ -0,0 +1,142 @@
+package ticTacToe;
+
+/**
+ * The 8 symmetries of the Tic Tac Toe board (the rotations and reflections of the square), used to map every game to a canonical
+ * representative so that solvers only need to store and back up one game out of each group of equivalent ones.
+ *
+ * Cells are numbered {@code x*3+y}. Transform {@code t} moves the mark in cell {@code c} to cell {@code CELLS[t][c]}; transform 0 is
+ * the identity. The canonical representative of a game is its image with the smallest {@link Game#hashCode}, i.e. the smallest
+ * base-3 board code, since the symmetries do not change whose turn it is.
+ *
+ * @author ae187
+ *
+ */
+public class Symmetry {
+
+	/**
+	 * The number of symmetries
+	 */
+	public static final int COUNT = 8;
+
+	/**
+	 * CELLS[t][c] is the cell that transform t moves cell c to
+	 */
+	static final int[][] CELLS = new int[COUNT][9];
+
+	/**
+	 * INVERSE_CELLS[t][d] is the cell that transform t moves to cell d, i.e. CELLS[t] inverted
+	 */
+	static final int[][] INVERSE_CELLS = new int[COUNT][9];
+
+	static {
+		for (int t = 0; t < COUNT; t++)
+			for (int c = 0; c < 9; c++) {
+				int x = c / 3, y = c % 3;
+				// reflect for the odd transforms, then rotate a quarter turn t/2 times
+				if ((t & 1) != 0)
+					y = 2 - y;
+				for (int r = 0; r < t / 2; r++) {
+					int tmp = x;
+					x = y;
+					y = 2 - tmp;
+				}
+				CELLS[t][c] = x * 3 + y;
+				INVERSE_CELLS[t][x * 3 + y] = c;
+			}
+	}
+
+	/**
+	 * @param g
+	 * @return the transform that maps {@code g} to its canonical representative. 0 if {@code g} is canonical.
+	 */
+	public static int canonicalTransform(Game g)
+	{
+		if (g.mnk != MNK.TIC_TAC_TOE)
+			throw new IllegalArgumentException("Symmetries are only defined for Tic Tac Toe, not " + g.mnk);
+		
+		int best = 0;
+		int bestCode = code(g, 0);
+		for (int t = 1; t < COUNT; t++) {
+			int code = code(g, t);
+			if (code < bestCode) {
+				bestCode = code;
+				best = t;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param g
+	 * @return the canonical representative of {@code g}; {@code g} itself if it is already canonical.
+	 */
+	public static Game canonical(Game g)
+	{
+		int t = canonicalTransform(g);
+		return t == 0 ? g : apply(g, t);
+	}
+
+	/**
+	 * @param g
+	 * @return true if {@code g} is the canonical representative of its group
+	 */
+	public static boolean isCanonical(Game g)
+	{
+		return canonicalTransform(g) == 0;
+	}
+
+	/**
+	 * @param g
+	 * @param t
+	 * @return a copy of {@code g} with its board transformed by {@code t}. Agents, turn, listener and state are kept.
+	 */
+	public static Game apply(Game g, int t)
+	{
+		Game image = new Game(g);
+		for (int c = 0; c < 9; c++) {
+			int d = CELLS[t][c];
+			image.board[d / 3][d % 3] = g.board[c / 3][c % 3];
+		}
+		image.state = g.state;
+		image.boardChanged();
+		return image;
+	}
+
+	/**
+	 * @param m a move in some game
+	 * @param t
+	 * @return the same move in the game transformed by {@code t}
+	 */
+	public static Move apply(Move m, int t)
+	{
+		int d = CELLS[t][m.x * 3 + m.y];
+		return new Move(m.who, d / 3, d % 3);
+	}
+
+	/**
+	 * @param m a move in a game transformed by {@code t}
+	 * @param t
+	 * @return the same move in the original game
+	 */
+	public static Move invert(Move m, int t)
+	{
+		int c = INVERSE_CELLS[t][m.x * 3 + m.y];
+		return new Move(m.who, c / 3, c % 3);
+	}
+
+	/**
+	 * @return the base-3 code of the board of {@code g} transformed by {@code t}, ordered like {@link Game#hashCode}
+	 */
+	static int code(Game g, int t)
+	{
+		int[] from = INVERSE_CELLS[t];
+		int code = 0;
+		for (int d = 0; d < 9; d++) {
+			int c = from[d];
+			char mark = g.board[c / 3][c % 3];
+			code = code * 3 + (mark == 'X' ? 1 : mark == 'O' ? 2 : 0);
+		}
+		return code;
+	}
+
+}
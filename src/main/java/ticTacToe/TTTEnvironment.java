@@ -10,6 +10,9 @@ import java.util.List;
  * whereas the RL agent (e.g. {@link QLearningAgent}) interacting with this environment always plays as 'X'. The key method to be used from this class
  * is the {@link TTTEnvironment#executeMove} method which takes a move (from X) and returns an {@link Outcome} object containing reward received as well
  * as the target state.
+ * 
+ * Training plays many thousands of games, so the environment's games report to {@link GameListener#NONE} unless given another
+ * listener with {@link #setListener}.
  * @author ae187
  *
  */
@@ -35,16 +38,19 @@ public class TTTEnvironment {
 	public TTTEnvironment()
 	{
 		game=new Game(new Agent(), new RandomAgent());
+		game.setListener(GameListener.NONE);
 	}
 	
 	public TTTEnvironment(Agent opponent)
 	{
 		game=new Game(new Agent(), opponent);
+		game.setListener(GameListener.NONE);
 	}
 	
 	public TTTEnvironment(Agent opponent, double winReward, double loseReward, double livingReward, double drawReward)
 	{
 		game=new Game(new Agent(), opponent);
+		game.setListener(GameListener.NONE);
 		this.winReward=winReward;
 		this.loseReward=loseReward;
 		this.livingReward=livingReward;
@@ -57,6 +63,25 @@ public class TTTEnvironment {
 		return game;
 	}
 	
+	/**
+	 * Starts a new game (episode) against the same opponent, keeping the rewards and the listener of the current game.
+	 */
+	public void reset()
+	{
+		GameListener listener=game.getListener();
+		game=new Game(new Agent(), game.o);
+		game.setListener(listener);
+	}
+	
+	/**
+	 * @param listener receives the warnings and the opponent's policy decisions, e.g. {@link ConsoleGameListener#INSTANCE} to print
+	 * them. Games are silent by default.
+	 */
+	public void setListener(GameListener listener)
+	{
+		game.setListener(listener);
+	}
+	
 	public List<Move> getPossibleMoves()
 	{
 		List<Move> moves=new ArrayList<Move>();
@@ -83,12 +108,12 @@ public class TTTEnvironment {
 			throw new IllegalMoveException("Illegal Move:"+m+" on:"+game);
 		else if (game.isTerminal())
 		{
-			System.out.println("Executing move in terminal state. Returning null.");
+			game.getListener().warning(game, "Executing move in terminal state. Returning null.");
 			return null;
 		}
 		else if (m.who.getName()!='X')
 		{
-			System.out.println("Trying to executing O move - the RL agent must always play as X. Returning null Outcome object.");
+			game.getListener().warning(game, "Trying to executing O move - the RL agent must always play as X. Returning null Outcome object.");
 			return null;
 		}
 		
@@ -107,7 +132,7 @@ public class TTTEnvironment {
 		}
 		
 		//If we are here, the game is ongoing. So now it's the opponent's turn to play.
-		Move oMove=game.o.getMove(game);
+		Move oMove=TrainingEvents.getMove(game.o, game);
 		if (!game.isLegal(oMove))
 			throw new IllegalMoveException("Illegal Move:"+m+" on:"+game);
 		
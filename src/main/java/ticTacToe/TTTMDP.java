@@ -67,8 +67,7 @@ public class TTTMDP {
 		}
 		catch(IllegalMoveException e)
 		{
-			System.out.println("WARNING: illegal move "+m+" tried when generating transitions. Returning empty list.");
-			System.out.println(e.getMessage());
+			g.getListener().warning(g, "WARNING: illegal move "+m+" tried when generating transitions. Returning empty list.\n"+e.getMessage());
 			
 			return result;
 		}
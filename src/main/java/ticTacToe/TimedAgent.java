@@ -0,0 +1,57 @@
+package ticTacToe;
+
+/**
+ * Wraps any {@link Agent} and records how long each of its {@link Agent#getMove} calls takes in a {@link LatencyHistogram}, one
+ * per side it plays. Histograms can be shared by several wrappers, e.g. by the per-thread agents of a {@link Tournament}.
+ * 
+ * @author ae187
+ *
+ */
+public class TimedAgent extends Agent {
+
+	final Agent agent;
+
+	final LatencyHistogram asX;
+
+	final LatencyHistogram asO;
+
+	/**
+	 * Times {@code agent} in new histograms named after its type and side
+	 */
+	public TimedAgent(Agent agent) {
+		this(agent, new LatencyHistogram(agent.getClass().getSimpleName() + " as X"),
+				new LatencyHistogram(agent.getClass().getSimpleName() + " as O"));
+	}
+
+	public TimedAgent(Agent agent, LatencyHistogram asX, LatencyHistogram asO) {
+		super(agent.getPolicy());
+		this.agent = agent;
+		this.asX = asX;
+		this.asO = asO;
+	}
+
+	public Move getMove(Game g) {
+		long start = System.nanoTime();
+		Move m = agent.getMove(g);
+		(name == 'X' ? asX : asO).record(System.nanoTime() - start);
+
+		return m;
+	}
+
+	public void setName(char n) {
+		super.setName(n);
+		agent.setName(n);
+	}
+
+	/**
+	 * @return the latencies of the moves played as 'X' or 'O'
+	 */
+	public LatencyHistogram getHistogram(char side) {
+		return side == 'X' ? asX : asO;
+	}
+
+	public Agent getAgent() {
+		return agent;
+	}
+
+}
@@ -0,0 +1,410 @@
+package ticTacToe;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * A headless tournament engine that plays a large number of games between agents across a thread pool. Unlike
+ * {@link Game#playOut()} nothing is printed while the games are being played: only the number of games won by X, won by O and
+ * drawn are kept, together with the time it took to play them.
+ *
+ * Agents are not thread safe (their name is set when they join a game, and some policies keep state between moves), so every
+ * entrant is given as a factory and each worker creates its own pair of agents. Agents that need training (value iteration,
+ * policy iteration, q-learning) should be trained once and then shared with {@link #sharing(Agent)}, which hands out new agents
+ * backed by the same, read-only, {@link Policy}.
+ *
+ * Games are played in fixed size chunks, and each chunk's agents are created with their own random streams split off the
+ * tournament's stream in submission order. For a given seed the results are therefore the same whatever the number of threads.
+ *
+ * @author ae187
+ *
+ */
+public class Tournament {
+
+	/**
+	 * A named agent factory taking part in a tournament. The factory is given the random stream the agent should use.
+	 */
+	public static class Entrant {
+		public final String name;
+		public final Function<SplittableRandom, Agent> factory;
+
+		public Entrant(String name, Function<SplittableRandom, Agent> factory) {
+			this.name = name;
+			this.factory = factory;
+		}
+
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * The aggregated result of a match between an X entrant and an O entrant.
+	 */
+	public static class Result {
+		public final String x;
+		public final String o;
+		public final long xWon;
+		public final long oWon;
+		public final long draws;
+		/**
+		 * wall time taken to play all the games, in nanoseconds
+		 */
+		public final long nanos;
+		/**
+		 * the move latencies of each side, null unless the tournament records latencies
+		 */
+		public final LatencyHistogram xLatency;
+		public final LatencyHistogram oLatency;
+
+		Result(String x, String o, long xWon, long oWon, long draws, long nanos, LatencyHistogram xLatency,
+				LatencyHistogram oLatency) {
+			this.x = x;
+			this.o = o;
+			this.xWon = xWon;
+			this.oWon = oWon;
+			this.draws = draws;
+			this.nanos = nanos;
+			this.xLatency = xLatency;
+			this.oLatency = oLatency;
+		}
+
+		public long games() {
+			return xWon + oWon + draws;
+		}
+
+		public double gamesPerSecond() {
+			return nanos == 0 ? 0.0 : games() * 1e9 / nanos;
+		}
+
+		public String toString() {
+			return x + " vs " + o + ": X won " + xWon + ", O won " + oWon + ", draws " + draws + " ("
+					+ String.format("%.0f", gamesPerSecond()) + " games/s)";
+		}
+	}
+
+	/**
+	 * The number of games a worker plays before handing its counts back.
+	 */
+	static final int CHUNK_SIZE = 10000;
+
+	/**
+	 * The number of worker threads
+	 */
+	int threads;
+
+	/**
+	 * Receives the events of every game played, nothing by default
+	 */
+	GameListener listener = GameListener.NONE;
+
+	/**
+	 * The stream the agents' random streams are split off, see {@link #setSeed}
+	 */
+	SplittableRandom random = RandomSource.split();
+
+	/**
+	 * Whether the agents are wrapped in {@link TimedAgent}s
+	 */
+	boolean recordLatency = false;
+
+	/**
+	 * A tournament using one worker thread per available processor
+	 */
+	public Tournament() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public Tournament(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("A tournament needs at least one thread");
+
+		this.threads = threads;
+	}
+
+	/**
+	 * Makes the following matches reproducible.
+	 */
+	public void setSeed(long seed) {
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * @param recordLatency
+	 *            whether to record the move latencies of each entrant in the results. This wraps every agent in a
+	 *            {@link TimedAgent}, whose cost is two calls to {@link System#nanoTime()} per move.
+	 */
+	public void setRecordLatency(boolean recordLatency) {
+		this.recordLatency = recordLatency;
+	}
+
+	/**
+	 * @param listener
+	 *            receives the events of every game played, from all the worker threads at once
+	 */
+	public void setListener(GameListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Plays {@code games} games between {@code x} and {@code o}.
+	 *
+	 * @param x
+	 *            the entrant playing X
+	 * @param o
+	 *            the entrant playing O
+	 * @param games
+	 *            the number of games to play
+	 * @param starter
+	 *            the side that starts every game, either 'X' or 'O'
+	 * @return the aggregated results
+	 * @throws IllegalMoveException
+	 *             if one of the agents played an illegal move
+	 */
+	public Result playMatch(Entrant x, Entrant o, long games, char starter) throws IllegalMoveException {
+		if (starter != 'X' && starter != 'O')
+			throw new IllegalArgumentException("Starter should be either 'X' or 'O'");
+
+		LatencyHistogram xLatency = recordLatency ? new LatencyHistogram(x.name + " as X") : null;
+		LatencyHistogram oLatency = recordLatency ? new LatencyHistogram(o.name + " as O") : null;
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			List<Future<long[]>> chunks = new ArrayList<Future<long[]>>();
+			for (long played = 0; played < games; played += CHUNK_SIZE) {
+				final int n = (int) Math.min(CHUNK_SIZE, games - played);
+				final SplittableRandom xr = random.split();
+				final SplittableRandom or = random.split();
+				chunks.add(pool.submit(() -> {
+					Agent xAgent = x.factory.apply(xr);
+					Agent oAgent = o.factory.apply(or);
+					if (recordLatency) {
+						xAgent = new TimedAgent(xAgent, xLatency, xLatency);
+						oAgent = new TimedAgent(oAgent, oLatency, oLatency);
+					}
+					return playChunk(xAgent, oAgent, n, starter, listener);
+				}));
+			}
+
+			long[] total = new long[4];
+			for (Future<long[]> chunk : chunks) {
+				long[] counts = chunk.get();
+				for (int i = 0; i < total.length; i++)
+					total[i] += counts[i];
+			}
+
+			return new Result(x.name, o.name, total[Game.X_WON], total[Game.O_WON], total[Game.DRAW],
+					System.nanoTime() - start, xLatency, oLatency);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tournament interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IllegalMoveException)
+				throw (IllegalMoveException) e.getCause();
+			else if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Plays every X entrant against every O entrant.
+	 *
+	 * @return one result per pairing, in the order of {@code xs} then {@code os}
+	 */
+	public List<Result> roundRobin(List<Entrant> xs, List<Entrant> os, long games, char starter)
+			throws IllegalMoveException {
+		List<Result> results = new ArrayList<Result>();
+		for (Entrant x : xs)
+			for (Entrant o : os)
+				results.add(playMatch(x, o, games, starter));
+
+		return results;
+	}
+
+	/**
+	 * Plays {@code n} games between the two agents, reporting them to {@code listener} only.
+	 *
+	 * @return the number of games ending in each state, indexed by {@link Game#X_WON}, {@link Game#O_WON} and
+	 *         {@link Game#DRAW}
+	 */
+	static long[] playChunk(Agent x, Agent o, int n, char starter, GameListener listener) throws IllegalMoveException {
+		long[] counts = new long[4];
+		for (int i = 0; i < n; i++) {
+			Game g = new Game(x, o, starter == 'X' ? x : o);
+			g.setListener(listener);
+			g.playOut();
+
+			counts[g.getState()]++;
+		}
+
+		return counts;
+	}
+
+	/**
+	 * @param trained
+	 *            an agent whose policy has already been computed
+	 * @return a factory of agents that all share the policy of {@code trained}
+	 */
+	public static Function<SplittableRandom, Agent> sharing(Agent trained) {
+		Policy p = trained.getPolicy();
+		return r -> new Agent(p);
+	}
+
+	/**
+	 * Creates an entrant from its command line name: vi, pi, ql, random, agg or def. Learning agents are trained once, here.
+	 */
+	public static Entrant entrant(String type) {
+		switch (type) {
+		case "vi":
+			return new Entrant(type, sharing(new ValueIterationAgent()));
+		case "pi":
+			return new Entrant(type, sharing(new PolicyIterationAgent()));
+		case "ql":
+			return new Entrant(type, sharing(new QLearningAgent()));
+		case "random":
+			return new Entrant(type, RandomAgent::new);
+		case "agg":
+			return new Entrant(type, AggressiveAgent::new);
+		case "def":
+			return new Entrant(type, DefensiveAgent::new);
+		default:
+			throw new IllegalArgumentException("Unknown agent type: " + type);
+		}
+	}
+
+	public static final String help = " -h this menu" + "\n -x the X agents: -x <vi,pi,ql,random,agg,def>"
+			+ "\n -o the O agents: -o <random,agg,def>" + "\n -n the number of games per pairing: -n <games>"
+			+ "\n -t the number of threads: -t <threads>"
+			+ "\n -s the agent that starts every game (x or o): -s <x or o>"
+			+ "\n -seed make the run reproducible: -seed <long>"
+			+ "\n -l report move latency percentiles of each agent: -l"
+			+ "\n -f append every game to a binary game record log: -f <file>";
+
+	/**
+	 * Plays every X agent against every O agent and prints the aggregated results, e.g.
+	 * {@code -x vi,pi -o random,agg,def -n 1000000}
+	 *
+	 * @param a
+	 * @throws IllegalMoveException
+	 *             if one of the agents played an illegal move
+	 * @throws IOException
+	 *             if the game record log cannot be written
+	 */
+	public static void main(String a[]) throws IllegalMoveException, IOException {
+		List<String> args = Arrays.asList(a);
+		if (args.contains("-h")) {
+			System.out.println(help);
+			return;
+		}
+
+		List<String> xs = Arrays.asList("vi");
+		List<String> os = Arrays.asList("random", "agg", "def");
+		long games = 1000000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		char starter = 'X';
+		String log = null;
+		boolean latency = false;
+		Iterator<String> iter = args.iterator();
+
+		while (iter.hasNext()) {
+			String cur = iter.next();
+			if (cur.equals("-l")) {
+				latency = true;
+				continue;
+			}
+			if (!iter.hasNext()) {
+				System.out.println("Error: " + cur + " should be followed by a value\n" + help);
+				return;
+			}
+			String next = iter.next();
+			try {
+				switch (cur) {
+				case "-x":
+					xs = Arrays.asList(next.split(","));
+					break;
+				case "-o":
+					os = Arrays.asList(next.split(","));
+					if (os.contains("vi") || os.contains("pi") || os.contains("ql")) {
+						System.out.println("Error: the learning agents should be X agents");
+						return;
+					}
+					break;
+				case "-n":
+					games = Long.parseLong(next);
+					break;
+				case "-t":
+					threads = Integer.parseInt(next);
+					break;
+				case "-s":
+					if (next.equalsIgnoreCase("x"))
+						starter = 'X';
+					else if (next.equalsIgnoreCase("o"))
+						starter = 'O';
+					else {
+						System.out.println("Error: -s should be followed by the agent that starts first: x or o");
+						return;
+					}
+					break;
+				case "-f":
+					log = next;
+					break;
+				case "-seed":
+					RandomSource.setSeed(Long.parseLong(next));
+					break;
+				default:
+					System.out.println("Error: unknown option " + cur + "\n" + help);
+					return;
+				}
+			} catch (NumberFormatException e) {
+				System.out.println("Error: the value of " + cur + " is not a number: " + next + "\n" + help);
+				return;
+			}
+		}
+
+		List<Entrant> xEntrants = new ArrayList<Entrant>();
+		for (String type : xs)
+			xEntrants.add(entrant(type));
+
+		List<Entrant> oEntrants = new ArrayList<Entrant>();
+		for (String type : os)
+			oEntrants.add(entrant(type));
+
+		Tournament t = new Tournament(threads);
+		t.setRecordLatency(latency);
+		GameRecordWriter writer = null;
+		if (log != null) {
+			writer = new GameRecordWriter(Paths.get(log));
+			t.setListener(writer);
+		}
+
+		try {
+			for (Result r : t.roundRobin(xEntrants, oEntrants, games, starter)) {
+				System.out.println(r);
+				if (latency) {
+					System.out.println("  " + r.xLatency);
+					System.out.println("  " + r.oLatency);
+				}
+			}
+		} finally {
+			if (writer != null)
+				writer.close();
+		}
+
+	}
+
+}
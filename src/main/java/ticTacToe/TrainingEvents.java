@@ -0,0 +1,86 @@
+package ticTacToe;
+
+/**
+ * The events emitted while training and playing, which are Java Flight Recorder events on Java 17 and later. This is the Java 8
+ * version of the class, which must not depend on {@code jdk.jfr}: its events have the same fields but are never recorded, as
+ * {@code shouldCommit()} is always false, and moves are asked of the agents directly. The jar is multi-release: on Java 17 and
+ * later, the version in {@code META-INF/versions/17} (built from {@code src/main/java17}) is loaded instead.
+ * 
+ * @author ae187
+ *
+ */
+public final class TrainingEvents {
+
+	private TrainingEvents() {
+	}
+
+	/**
+	 * The part of {@code jdk.jfr.Event} used by the callers, doing nothing. It is not public, so that the public surface of the
+	 * two versions is the same: the event classes and their fields.
+	 */
+	abstract static class Event {
+		public void begin() {
+		}
+
+		public void end() {
+		}
+
+		public boolean shouldCommit() {
+			return false;
+		}
+
+		public void commit() {
+		}
+	}
+
+	public static class ValueIterationSweep extends Event {
+		public long states;
+		public long transitions;
+		public double residual;
+	}
+
+	public static class PolicyEvaluation extends Event {
+		public long states;
+		public long sweeps;
+		public double residual;
+	}
+
+	public static class PolicyImprovement extends Event {
+		public long states;
+		public long changedActions;
+	}
+
+	public static class QLearningEpisodes extends Event {
+		public long episodes;
+		public long updates;
+		public double averageTdError;
+		public double epsilon;
+	}
+
+	public static class MDPCompilation extends Event {
+		public String solver;
+		public long states;
+		public long transitions;
+	}
+
+	public static class PolicyExtraction extends Event {
+		public String solver;
+		public long states;
+	}
+
+	public static class PolicyLoad extends Event {
+		public String file;
+		public long states;
+	}
+
+	public static class AgentMove extends Event {
+		public String agent;
+		public char side;
+		public int empty;
+	}
+
+	static Move getMove(Agent agent, Game g) {
+		return agent.getMove(g);
+	}
+
+}
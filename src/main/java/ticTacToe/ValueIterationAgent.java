@@ -16,10 +16,16 @@ import java.util.Map;
 public class ValueIterationAgent extends Agent
 {
 	/**
-	 * This map is used to store the values of states
+	 * This map is used to store the values of states. If the policy was found in the {@link PolicyCache}, it is only filled in
+	 * once the values are first needed, see {@link #fillValues}.
 	 */
 	Map<Game, Double> valueFunction = new HashMap<Game, Double>();
 	
+	/**
+	 * True if the policy was found in the {@link PolicyCache} and {@link #valueFunction} has not been filled in yet
+	 */
+	boolean cacheHit = false;
+	
 	/**
 	 * The discount factor
 	 */
@@ -35,6 +41,49 @@ public class ValueIterationAgent extends Agent
 	 */
 	int k = 10;
 	
+	/**
+	 * The largest change in any value at which {@link #resolve} stops sweeping
+	 */
+	double tolerance = 1e-9;
+	
+	/**
+	 * If true, only canonical games (see {@link Symmetry}) are stored and backed up, and the policy is a {@link SymmetricPolicy}
+	 */
+	boolean symmetric = false;
+	
+	/**
+	 * If not null, the MDP is compiled to arrays with this layout (see {@link CompiledMDP}) and solved there, in {@link #values},
+	 * instead of in {@link #valueFunction}
+	 */
+	CompiledMDP.Layout layout = null;
+	
+	/**
+	 * If true, the compiled MDP's values are stored as floats, in {@link #floatValues}, which halves the memory they take and
+	 * read in each sweep. Backups still sum in double precision.
+	 */
+	boolean singlePrecision = false;
+	
+	/**
+	 * The compiled MDP, the value of each of its states (in one of the two arrays, see {@link #singlePrecision}) and the rewards
+	 * indexed by kind, when {@link #layout} is set
+	 */
+	CompiledMDP compiled;
+	double[] values;
+	float[] floatValues;
+	double[] rewards;
+	
+	/**
+	 * Training metrics shared by all value iteration agents, published over JMX. See {@link MetricsRegistry}.
+	 */
+	static final MetricsRegistry metrics = MetricsRegistry.get("ValueIterationAgent");
+	static final MetricsRegistry.Counter sweeps = metrics.counter("Sweeps");
+	static final MetricsRegistry.Gauge maxResidual = metrics.gauge("MaxResidual");
+	static final MetricsRegistry.Counter statesProcessed = metrics.counter("StatesProcessed");
+	static final MetricsRegistry.Counter transitionsProcessed = metrics.counter("TransitionsProcessed");
+	static final MetricsRegistry.Timer initTimer = metrics.timer("InitValues");
+	static final MetricsRegistry.Timer iterateTimer = metrics.timer("Iterate");
+	static final MetricsRegistry.Timer extractTimer = metrics.timer("ExtractPolicy");
+	
 	/**
 	 * This constructor trains the agent offline first and sets its policy
 	 */
@@ -43,8 +92,7 @@ public class ValueIterationAgent extends Agent
 		super();
 		mdp = new TTTMDP();
 		this.discount = 0.9;
-		initValues();
-		train();
+		solve();
 	}
 	
 	/**
@@ -61,8 +109,48 @@ public class ValueIterationAgent extends Agent
 	{
 		this.discount = discountFactor;
 		mdp = new TTTMDP();
-		initValues();
-		train();
+		solve();
+	}
+
+	/**
+	 * Use this constructor to solve the MDP over canonical games only, which backs up roughly 8 times fewer states
+	 * 
+	 * @param discountFactor
+	 * @param symmetric see {@link #symmetric}
+	 */
+	public ValueIterationAgent(double discountFactor, boolean symmetric)
+	{
+		this.discount = discountFactor;
+		this.symmetric = symmetric;
+		mdp = new TTTMDP();
+		solve();
+	}
+
+	/**
+	 * Use this constructor to solve the MDP compiled to flat arrays, which is much faster than solving it over {@link Game}s
+	 * 
+	 * @param discountFactor
+	 * @param layout the order of the states in the arrays, see {@link CompiledMDP.Layout}
+	 */
+	public ValueIterationAgent(double discountFactor, CompiledMDP.Layout layout)
+	{
+		this(discountFactor, layout, false);
+	}
+
+	/**
+	 * Use this constructor to solve the MDP compiled to flat arrays, storing its values as floats if {@code singlePrecision}
+	 * 
+	 * @param discountFactor
+	 * @param layout the order of the states in the arrays, see {@link CompiledMDP.Layout}
+	 * @param singlePrecision see {@link #singlePrecision}
+	 */
+	public ValueIterationAgent(double discountFactor, CompiledMDP.Layout layout, boolean singlePrecision)
+	{
+		this.discount = discountFactor;
+		this.layout = layout;
+		this.singlePrecision = singlePrecision;
+		mdp = new TTTMDP();
+		solve();
 	}
 
 	public ValueIterationAgent(double discountFactor, double winReward, double loseReward, double livingReward, double drawReward)
@@ -71,6 +159,31 @@ public class ValueIterationAgent extends Agent
 		mdp = new TTTMDP(winReward, loseReward, livingReward, drawReward);
 	}
 	
+	/**
+	 * Solves the MDP and sets the agent's policy, unless a policy for the same rewards and parameters is already in the
+	 * {@link PolicyCache}. A compiled MDP is always solved, so that its values are kept. On a cache hit only the policy is set,
+	 * and the values are worked out when they are first read (see {@link #fillValues}).
+	 */
+	void solve()
+	{
+		if (layout != null) {
+			initValues();
+			train();
+			return;
+		}
+		
+		String key = PolicyCache.key(getClass().getSimpleName(), mdp.winReward, mdp.loseReward, mdp.livingReward, mdp.drawReward,
+				"discount", discount, "k", k, "symmetric", symmetric);
+		super.policy = PolicyCache.get(key, symmetric);
+		cacheHit = super.policy != null;
+		if (cacheHit)
+			return;
+		
+		initValues();
+		train();
+		PolicyCache.put(key, super.policy);
+	}
+	
 	/**
 	 * Initialises the {@link ValueIterationAgent#valueFunction} map, and sets the initial value of all states to 0 
 	 * (V0 from the lectures). Uses {@link Game#inverseHash} and {@link Game#generateAllValidGames(char)} to do this. 
@@ -78,10 +191,38 @@ public class ValueIterationAgent extends Agent
 	 */
 	public void initValues()
 	{
+		long start = initTimer.start();
+		TrainingEvents.MDPCompilation event = new TrainingEvents.MDPCompilation();
+		event.begin();
+		if (layout != null) {
+			compiled = CompiledMDP.get(MNK.TIC_TAC_TOE, layout);
+			if (singlePrecision)
+				floatValues = compiled.newFloatValues();
+			else
+				values = compiled.newValues();
+			rewards = CompiledMDP.rewards(mdp);
+			initTimer.stop(start);
+			if (event.shouldCommit()) {
+				event.solver = "ValueIterationAgent";
+				event.states = compiled.states();
+				event.transitions = compiled.transitions();
+				event.commit();
+			}
+			return;
+		}
+		
+		cacheHit = false;
 		List<Game> allGames = Game.generateAllValidGames('X');//all valid games where it is X's turn, or it's terminal.
 		
 		for(Game g: allGames) {
-			this.valueFunction.put(g, 0.0);
+			if (!symmetric || Symmetry.isCanonical(g))
+				this.valueFunction.put(g, 0.0);
+		}
+		initTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.solver = "ValueIterationAgent";
+			event.states = this.valueFunction.size();
+			event.commit();
 		}
 	}
 	
@@ -91,8 +232,23 @@ public class ValueIterationAgent extends Agent
 	 */
 	public void iterate()
 	{
+		fillValues();
+		if (compiled != null) {
+			iterateCompiled();
+			return;
+		}
+		
+		long start = iterateTimer.start();
+		
 		// Perform k number of iterations
 		for (int i = 0; i < this.k; i++) {
+			// Largest change in any state's value during this sweep, and work done, for the training metrics
+			double residual = 0.0;
+			long states = 0;
+			long transitions = 0;
+			TrainingEvents.ValueIterationSweep event = new TrainingEvents.ValueIterationSweep();
+			event.begin();
+			
 			// Start at the first state in the valueFunction map
 			for (Game currentGame : this.valueFunction.keySet()) {
 				// Get all the possible actions from the current state (Game)
@@ -116,12 +272,13 @@ public class ValueIterationAgent extends Agent
 				for (Move move : currentMoves) {
 					// Get all the possible outcomes from the current action (Move)
 					List<TransitionProb> T = mdp.generateTransitions(currentGame, move);
+					transitions += T.size();
 
 					// Compute the Bellman equation for this action
 					double sum = 0.0;
 					for (TransitionProb t : T) {
 						sum += (t.prob * (
-							t.outcome.localReward + this.discount * this.valueFunction.get(t.outcome.sPrime))
+							t.outcome.localReward + this.discount * this.value(t.outcome.sPrime))
 						);
 					}
 
@@ -135,9 +292,114 @@ public class ValueIterationAgent extends Agent
 				}
 
 				// Store the value of the current state (Game)
-				this.valueFunction.replace(currentGame, stateValue);
+				double oldValue = this.valueFunction.replace(currentGame, stateValue);
+				residual = Math.max(residual, Math.abs(oldValue - stateValue));
+				states++;
+			}
+			
+			sweeps.increment();
+			maxResidual.set(residual);
+			statesProcessed.add(states);
+			transitionsProcessed.add(transitions);
+			if (event.shouldCommit()) {
+				event.states = states;
+				event.transitions = transitions;
+				event.residual = residual;
+				event.commit();
 			}
 		}
+		
+		iterateTimer.stop(start);
+	}
+	
+	/**
+	 * Performs {@link #k} sweeps of value iteration over the {@link #compiled} MDP.
+	 */
+	void iterateCompiled()
+	{
+		long start = iterateTimer.start();
+		for (int i = 0; i < this.k; i++)
+			sweepCompiled();
+		iterateTimer.stop(start);
+	}
+	
+	/**
+	 * Performs one sweep of value iteration over the {@link #compiled} MDP.
+	 * 
+	 * @return the largest change in any value
+	 */
+	double sweepCompiled()
+	{
+		TrainingEvents.ValueIterationSweep event = new TrainingEvents.ValueIterationSweep();
+		event.begin();
+		double residual = singlePrecision ? compiled.sweep(floatValues, rewards, discount)
+				: compiled.sweep(values, rewards, discount);
+		
+		sweeps.increment();
+		maxResidual.set(residual);
+		statesProcessed.add(compiled.states());
+		transitionsProcessed.add(compiled.transitions());
+		if (event.shouldCommit()) {
+			event.states = compiled.states();
+			event.transitions = compiled.transitions();
+			event.residual = residual;
+			event.commit();
+		}
+		return residual;
+	}
+	
+	/**
+	 * Re-solves the compiled MDP for new rewards and discount, warm-started: the compiled transitions are kept, and value
+	 * iteration starts from the current values rather than from 0, sweeping until no value changes by more than
+	 * {@link #tolerance}. When the parameters change a little, so do the values, and it takes a few sweeps instead of a full solve.
+	 * The agent's policy is then extracted from the new values.
+	 * 
+	 * @return the number of sweeps done
+	 * @throws IllegalStateException
+	 *             if the agent does not solve a compiled MDP, see {@link #ValueIterationAgent(double, CompiledMDP.Layout)}
+	 */
+	public long resolve(double discountFactor, double winReward, double loseReward, double livingReward, double drawReward)
+	{
+		if (compiled == null)
+			throw new IllegalStateException("Only an agent solving a compiled MDP can be re-solved");
+		
+		this.discount = discountFactor;
+		this.mdp = new TTTMDP(winReward, loseReward, livingReward, drawReward);
+		this.rewards = CompiledMDP.rewards(mdp);
+		
+		long start = iterateTimer.start();
+		long n = 0;
+		double residual;
+		do {
+			residual = sweepCompiled();
+			n++;
+		} while (residual > tolerance);
+		iterateTimer.stop(start);
+		
+		super.policy = this.extractPolicy();
+		return n;
+	}
+	
+	/**
+	 * Fills in {@link #valueFunction} after a {@link PolicyCache} hit, by running the same {@link #k} sweeps from 0 as a solve
+	 * would. The policy is left as it is.
+	 */
+	void fillValues()
+	{
+		if (cacheHit) {
+			initValues();
+			iterate();
+		}
+	}
+	
+	/**
+	 * @param g
+	 * @return the current value of {@code g}, which is stored under its canonical representative in {@link #symmetric} mode
+	 */
+	double value(Game g)
+	{
+		fillValues();
+		return this.valueFunction.get(symmetric ? Symmetry.canonical(g) : g);
 	}
 	
 	/**
@@ -149,9 +411,21 @@ public class ValueIterationAgent extends Agent
 	 */
 	public Policy extractPolicy()
 	{
-		Policy policy = new Policy();
+		fillValues();
+		long start = extractTimer.start();
+		TrainingEvents.PolicyExtraction event = new TrainingEvents.PolicyExtraction();
+		event.begin();
+		Policy policy = symmetric ? new SymmetricPolicy() : new Policy();
 		
-		// Start at the first state in the valueFunction map
+		if (compiled != null) {
+			int[] actions = new int[compiled.states()];
+			for (int s = 0; s < actions.length; s++)
+				actions[s] = singlePrecision ? compiled.greedy(s, floatValues, rewards, discount)
+						: compiled.greedy(s, values, rewards, discount);
+			policy = compiled.policy(actions);
+		}
+		
+		// Start at the first state in the valueFunction map (empty if the MDP is compiled)
 		for (Game currentGame : this.valueFunction.keySet()) {
 			// Get all the possible actions from the current state (Game)
 			List<Move> currentMoves = currentGame.getPossibleMoves();
@@ -177,7 +451,7 @@ public class ValueIterationAgent extends Agent
 				double sum = 0.0;
 				for (TransitionProb t : T) {
 					sum += (t.prob * (
-						t.outcome.localReward + this.discount * this.valueFunction.get(t.outcome.sPrime))
+						t.outcome.localReward + this.discount * this.value(t.outcome.sPrime))
 					);
 				}
 
@@ -189,6 +463,12 @@ public class ValueIterationAgent extends Agent
 			}
 		}
 		
+		extractTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.solver = "ValueIterationAgent";
+			event.states = policy.policy.size();
+			event.commit();
+		}
 		return policy;
 	}
 	
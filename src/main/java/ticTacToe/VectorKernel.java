@@ -0,0 +1,36 @@
+package ticTacToe;
+
+/**
+ * The SIMD Bellman backup of a {@link CompiledMDP}, which needs the Vector API of Java 17 and later. This is the Java 8 version of
+ * the class, which is never available, and backs up on the scalar loop of {@link CompiledMDP#scalarQ}. The jar is multi-release:
+ * on Java 17 and later, the version in {@code META-INF/versions/17} (built from {@code src/main/java17}) is loaded instead.
+ *
+ * @author ae187
+ *
+ */
+final class VectorKernel {
+
+	/**
+	 * True if {@link #q} can be called. Not a constant, which javac would copy into the callers of this version of the class.
+	 */
+	static final boolean AVAILABLE = available();
+
+	private VectorKernel() {
+	}
+
+	static boolean available() {
+		return false;
+	}
+
+	static double q(CompiledMDP mdp, int action, double[] values, double[] rewards, double discount) {
+		return mdp.scalarQ(action, values, rewards, discount);
+	}
+
+	/**
+	 * @return a description of the kernel in use, for reports
+	 */
+	static String describe() {
+		return "scalar";
+	}
+
+}
@@ -0,0 +1,161 @@
+package ticTacToe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events emitted while training and playing, so training phases can be correlated with GC and CPU samples
+ * in a recording. Every event is timed: callers {@code begin()} it before the phase, and fill in its fields and {@code commit()}
+ * it only if {@code shouldCommit()}, which keeps the cost to a branch when recording is off.
+ * 
+ * This is the Java 17 version of the class, in {@code META-INF/versions/17} of the multi-release jar. The Java 8 base, which cannot
+ * depend on {@code jdk.jfr}, has the same events without a recorder behind them.
+ * 
+ * @author ae187
+ *
+ */
+public final class TrainingEvents {
+
+	private TrainingEvents() {
+	}
+
+	@Name("ticTacToe.ValueIterationSweep")
+	@Label("Value Iteration Sweep")
+	@Category({ "Tic Tac Toe", "Training" })
+	@StackTrace(false)
+	public static class ValueIterationSweep extends Event {
+		@Label("States")
+		public long states;
+
+		@Label("Transitions")
+		public long transitions;
+
+		@Label("Max Residual")
+		@Description("Largest change in any state's value during the sweep")
+		public double residual;
+	}
+
+	@Name("ticTacToe.PolicyEvaluation")
+	@Label("Policy Evaluation")
+	@Category({ "Tic Tac Toe", "Training" })
+	@StackTrace(false)
+	public static class PolicyEvaluation extends Event {
+		@Label("States")
+		public long states;
+
+		@Label("Sweeps")
+		public long sweeps;
+
+		@Label("Last Residual")
+		@Description("Largest change in any state's value during the last sweep")
+		public double residual;
+	}
+
+	@Name("ticTacToe.PolicyImprovement")
+	@Label("Policy Improvement")
+	@Category({ "Tic Tac Toe", "Training" })
+	@StackTrace(false)
+	public static class PolicyImprovement extends Event {
+		@Label("States")
+		public long states;
+
+		@Label("Changed Actions")
+		public long changedActions;
+	}
+
+	@Name("ticTacToe.QLearningEpisodes")
+	@Label("Q-Learning Episode Batch")
+	@Category({ "Tic Tac Toe", "Training" })
+	@StackTrace(false)
+	public static class QLearningEpisodes extends Event {
+		@Label("Episodes")
+		public long episodes;
+
+		@Label("Updates")
+		public long updates;
+
+		@Label("Average TD Error")
+		public double averageTdError;
+
+		@Label("Epsilon")
+		public double epsilon;
+	}
+
+	@Name("ticTacToe.MDPCompilation")
+	@Label("MDP Compilation")
+	@Description("Enumeration of the state space, and of its transitions if compiled, before solving")
+	@Category({ "Tic Tac Toe", "Training" })
+	@StackTrace(false)
+	public static class MDPCompilation extends Event {
+		@Label("Solver")
+		public String solver;
+
+		@Label("States")
+		public long states;
+
+		@Label("Transitions")
+		public long transitions;
+	}
+
+	@Name("ticTacToe.PolicyExtraction")
+	@Label("Policy Extraction")
+	@Category({ "Tic Tac Toe", "Training" })
+	@StackTrace(false)
+	public static class PolicyExtraction extends Event {
+		@Label("Solver")
+		public String solver;
+
+		@Label("States")
+		public long states;
+	}
+
+	@Name("ticTacToe.PolicyLoad")
+	@Label("Policy Load")
+	@Category({ "Tic Tac Toe", "Training" })
+	@StackTrace(false)
+	public static class PolicyLoad extends Event {
+		@Label("File")
+		public String file;
+
+		@Label("States")
+		public long states;
+	}
+
+	@Name("ticTacToe.AgentMove")
+	@Label("Agent Move")
+	@Category({ "Tic Tac Toe", "Gameplay" })
+	@StackTrace(false)
+	public static class AgentMove extends Event {
+		@Label("Agent")
+		public String agent;
+
+		@Label("Side")
+		public char side;
+
+		@Label("Empty Cells")
+		public int empty;
+	}
+
+	/**
+	 * Asks {@code agent} for its move in {@code g}, recording an {@link AgentMove} event around the call.
+	 */
+	static Move getMove(Agent agent, Game g) {
+		AgentMove event = new AgentMove();
+		event.begin();
+		Move m = agent.getMove(g);
+		event.end();
+		if (event.shouldCommit()) {
+			event.agent = agent.getClass().getSimpleName();
+			event.side = agent.getName();
+			event.empty = Long.bitCount(Bitboards.mask(g, ' '));
+			event.commit();
+		}
+
+		return m;
+	}
+
+}
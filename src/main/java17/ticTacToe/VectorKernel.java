@@ -0,0 +1,87 @@
+package ticTacToe;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD Bellman backup of a {@link CompiledMDP}, on the Vector API of Java 17 and later: the successor values of an action are
+ * gathered a vector of lanes at a time, by their ids, and multiplied by their probabilities and added with fused multiply-adds.
+ * The immediate rewards, looked up by kind, are summed apart, so a backup computes
+ * {@code sum(prob*reward) + discount*sum(prob*value)}, equal to the scalar {@code sum(prob*(reward+discount*value))} up to
+ * rounding.
+ *
+ * The kernel is used if the JVM is started with {@code -DticTacToe.vector=true} and with the incubating
+ * {@code jdk.incubator.vector} module, which it only resolves if asked to with {@code --add-modules jdk.incubator.vector};
+ * otherwise it is not {@link #AVAILABLE} and backups use the scalar loop. It is off by default because it is no faster: a backup
+ * is bound by the reads of successor values scattered over the value array, which a gather does not make any quicker than scalar
+ * loads (see {@code BellmanBenchmark}). All the code using the module is in {@link Lanes}, which is only loaded once the module is
+ * known to be there.
+ *
+ * @author ae187
+ *
+ */
+final class VectorKernel {
+
+	/**
+	 * True if {@link #q} can be called
+	 */
+	static final boolean AVAILABLE = available();
+
+	private VectorKernel() {
+	}
+
+	static boolean available() {
+		if (!Boolean.getBoolean("ticTacToe.vector"))
+			return false;
+
+		return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && Lanes.SPECIES.length() > 1;
+	}
+
+	static double q(CompiledMDP mdp, int action, double[] values, double[] rewards, double discount) {
+		return Lanes.q(mdp, action, values, rewards, discount);
+	}
+
+	/**
+	 * @return a description of the kernel in use, for reports
+	 */
+	static String describe() {
+		return AVAILABLE ? "vector, " + Lanes.SPECIES.length() + " lanes" : "scalar";
+	}
+
+	static final class Lanes {
+
+		/**
+		 * The widest vectors of doubles the CPU has, 4 lanes with AVX2 and 8 with AVX-512
+		 */
+		static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+		static double q(CompiledMDP mdp, int action, double[] values, double[] rewards, double discount) {
+			int from = mdp.transitionStart[action], to = mdp.transitionStart[action + 1];
+			double[] prob = mdp.prob;
+			int[] next = mdp.next;
+			byte[] kind = mdp.kind;
+
+			double immediate = 0.0;
+			for (int t = from; t < to; t++)
+				immediate += prob[t] * rewards[kind[t]];
+
+			// whole vectors of successors, then the rest one at a time: a masked gather still reads the ids of its unset lanes
+			int t = from;
+			double future = 0.0;
+			int bound = from + SPECIES.loopBound(to - from);
+			if (t < bound) {
+				DoubleVector sum = DoubleVector.zero(SPECIES);
+				for (; t < bound; t += SPECIES.length())
+					sum = DoubleVector.fromArray(SPECIES, prob, t).fma(DoubleVector.fromArray(SPECIES, values, 0, next, t), sum);
+				future = sum.reduceLanes(VectorOperators.ADD);
+			}
+			for (; t < to; t++)
+				future += prob[t] * values[next[t]];
+
+			return immediate + discount * future;
+		}
+
+	}
+
+}
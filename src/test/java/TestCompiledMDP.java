@@ -0,0 +1,106 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ticTacToe.CompactQTable;
+import ticTacToe.CompiledMDP;
+import ticTacToe.ExactEvaluator;
+import ticTacToe.Game;
+import ticTacToe.MNK;
+import ticTacToe.Move;
+import ticTacToe.OpponentModel;
+import ticTacToe.Policy;
+import ticTacToe.PolicyIterationAgent;
+import ticTacToe.TTTMDP;
+import ticTacToe.ValueIterationAgent;
+
+public class TestCompiledMDP {
+
+	@Test
+	public void testAgainstValueIteration() {
+		ValueIterationAgent vi = new ValueIterationAgent();
+		for (CompiledMDP.Layout layout : CompiledMDP.Layout.values()) {
+			ValueIterationAgent compiledVI = new ValueIterationAgent(0.9, layout);
+			PolicyIterationAgent compiledPI = new PolicyIterationAgent(0.9, layout);
+			for (char starter : new char[] { 'X', 'O' }) {
+				double expected = ExactEvaluator.evaluate(vi.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn;
+				assertEquals(expected, ExactEvaluator.evaluate(compiledVI.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+				assertEquals(expected, ExactEvaluator.evaluate(compiledPI.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * The backups of whichever kernel is in use against the scalar loop. The java17 profile runs this against the multi-release jar
+	 * with the vector kernel on, see the pom.
+	 */
+	@Test
+	public void testKernel() {
+		if (Boolean.getBoolean("ticTacToe.vector"))
+			assertTrue(CompiledMDP.kernel(), CompiledMDP.kernel().startsWith("vector"));
+
+		CompiledMDP mdp = CompiledMDP.get(MNK.TIC_TAC_TOE, CompiledMDP.Layout.RANDOM);
+		double[] rewards = CompiledMDP.rewards(new TTTMDP());
+		double[] values = mdp.newValues();
+		SplittableRandom random = new SplittableRandom(5);
+		for (int s = 0; s < mdp.states(); s++)
+			values[s] = random.nextDouble(-50, 10);
+
+		for (int a = 0; a < mdp.actions(); a++)
+			assertEquals(mdp.scalarQ(a, values, rewards, 0.9), mdp.q(a, values, rewards, 0.9), 1e-9);
+	}
+
+	@Test
+	public void testSinglePrecision() {
+		// float values may only break ties between equally good moves differently
+		ValueIterationAgent vi = new ValueIterationAgent(0.9, CompiledMDP.Layout.LAYERED);
+		ValueIterationAgent floatVI = new ValueIterationAgent(0.9, CompiledMDP.Layout.LAYERED, true);
+		PolicyIterationAgent floatPI = new PolicyIterationAgent(0.9, CompiledMDP.Layout.LAYERED, true);
+		for (char starter : new char[] { 'X', 'O' }) {
+			double expected = ExactEvaluator.evaluate(vi.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn;
+			assertEquals(expected, ExactEvaluator.evaluate(floatVI.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+			assertEquals(expected, ExactEvaluator.evaluate(floatPI.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+		}
+
+		CompiledMDP mdp = CompiledMDP.get(MNK.TIC_TAC_TOE, CompiledMDP.Layout.LAYERED);
+		CompactQTable table = new CompactQTable(mdp, true);
+		Game empty = mdp.game(mdp.id(0L, 0L));
+		Move centre = new Move('X', 1, 1);
+		table.addQValue(empty, centre, 0.1);
+		assertEquals((float) 0.1, table.getQValue(empty, centre), 0.0);
+		assertEquals(centre, table.best(empty));
+		assertEquals(new CompactQTable(mdp, false).footprint(), 2 * table.footprint());
+	}
+
+	@Test
+	public void testResolve() {
+		ValueIterationAgent vi = new ValueIterationAgent(0.9, CompiledMDP.Layout.RANDOM);
+		PolicyIterationAgent pi = new PolicyIterationAgent(0.9, CompiledMDP.Layout.RANDOM);
+		vi.resolve(0.95, 12, -40, -0.5, 1);
+		pi.resolve(0.95, 12, -40, -0.5, 1);
+
+		// the same policies as solving from scratch, judged by the new rewards and discount
+		ValueIterationAgent cold = new ValueIterationAgent(0.95, 12, -40, -0.5, 1);
+		cold.initValues();
+		cold.train();
+		TTTMDP mdp = new TTTMDP(12, -40, -0.5, 1);
+		double expected = new ExactEvaluator(cold.getPolicy(), OpponentModel.UNIFORM, mdp, 0.95).evaluate('X').expectedReturn;
+		for (Policy policy : new Policy[] { vi.getPolicy(), pi.getPolicy() })
+			assertEquals(expected, new ExactEvaluator(policy, OpponentModel.UNIFORM, mdp, 0.95).evaluate('X').expectedReturn, 1e-9);
+	}
+
+	@Test
+	public void testLayeredSweep() {
+		CompiledMDP mdp = CompiledMDP.get(MNK.of(3, 4, 3), CompiledMDP.Layout.LAYERED);
+		double[] values = mdp.newValues();
+		double[] rewards = CompiledMDP.rewards(new TTTMDP());
+
+		// every state comes after its successors, so the first sweep is exact
+		mdp.sweep(values, rewards, 0.9);
+		assertEquals(0.0, mdp.sweep(values, rewards, 0.9), 0.0);
+	}
+
+}
@@ -0,0 +1,42 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ticTacToe.ExactEvaluator;
+import ticTacToe.IllegalMoveException;
+import ticTacToe.OpponentModel;
+import ticTacToe.Policy;
+import ticTacToe.RandomAgent;
+import ticTacToe.Tournament;
+import ticTacToe.ValueIterationAgent;
+
+public class TestExactEvaluator {
+
+	@Test
+	public void testNeverLoses() {
+		Policy p = new ValueIterationAgent().getPolicy();
+
+		for (OpponentModel opponent : new OpponentModel[] { OpponentModel.UNIFORM, OpponentModel.AGGRESSIVE,
+				OpponentModel.DEFENSIVE }) {
+			ExactEvaluator.Evaluation e = ExactEvaluator.evaluate(p, opponent, 'X');
+			System.out.println(e);
+			assertEquals(0.0, e.oWon, 1e-12);
+			assertEquals(1.0, e.xWon + e.oWon + e.draw, 1e-12);
+		}
+	}
+
+	@Test
+	public void testMatchesSampling() throws IllegalMoveException {
+		ValueIterationAgent vi = new ValueIterationAgent();
+		ExactEvaluator.Evaluation e = ExactEvaluator.evaluate(vi.getPolicy(), OpponentModel.UNIFORM, 'X');
+
+		Tournament t = new Tournament();
+		t.setSeed(7);
+		Tournament.Result r = t.playMatch(new Tournament.Entrant("vi", Tournament.sharing(vi)),
+				new Tournament.Entrant("random", RandomAgent::new), 200000, 'X');
+
+		assertEquals(e.xWon, r.xWon / (double) r.games(), 0.005);
+		assertEquals(e.draw, r.draws / (double) r.games(), 0.005);
+	}
+
+}
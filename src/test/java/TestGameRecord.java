@@ -0,0 +1,77 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import ticTacToe.Game;
+import ticTacToe.GameListener;
+import ticTacToe.GameRecord;
+import ticTacToe.GameRecordReader;
+import ticTacToe.GameRecordWriter;
+import ticTacToe.IllegalMoveException;
+import ticTacToe.MNK;
+import ticTacToe.RandomAgent;
+import ticTacToe.RecordingGameListener;
+import ticTacToe.Tournament;
+
+public class TestGameRecord {
+
+	@Test
+	public void testRoundTrip() throws IOException, IllegalMoveException {
+		File file = File.createTempFile("games", ".rec");
+		file.deleteOnExit();
+
+		RecordingGameListener recorder = new RecordingGameListener();
+		Tournament t = new Tournament(1);
+		Tournament.Entrant random = new Tournament.Entrant("random", RandomAgent::new);
+		try (GameRecordWriter writer = new GameRecordWriter(file.toPath())) {
+			t.setListener(GameListener.combine(recorder, writer));
+			t.playMatch(random, random, 30000, 'O');
+		}
+
+		List<RecordingGameListener.Recording> recordings = recorder.getRecordings();
+		try (GameRecordReader reader = new GameRecordReader(file.toPath())) {
+			GameRecord r = new GameRecord();
+			for (RecordingGameListener.Recording expected : recordings) {
+				reader.next(r);
+				assertEquals('O', r.getStarter());
+				assertEquals(expected.state, r.getState());
+				assertEquals(expected.moves.size(), r.getLength());
+				for (int i = 0; i < r.getLength(); i++)
+					assertEquals(expected.moves.get(i).x * 3 + expected.moves.get(i).y, r.getCell(i));
+
+				Game g = r.toGame();
+				assertEquals(expected.state, g.getState());
+			}
+			assertFalse(reader.next(r));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsMNK() throws IOException {
+		File file = File.createTempFile("games", ".rec");
+		file.deleteOnExit();
+
+		try (GameRecordWriter writer = new GameRecordWriter(file.toPath())) {
+			writer.gameStarted(new Game(MNK.of(4, 4, 4), 'X'));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptHeader() throws IOException {
+		File file = File.createTempFile("games", ".rec");
+		file.deleteOnExit();
+		// a game of 15 moves
+		Files.write(file.toPath(), new byte[] { 0x0F, 0, 0, 0, 0, 0, 0, 0 });
+
+		try (GameRecordReader reader = new GameRecordReader(file.toPath())) {
+			reader.next(new GameRecord());
+		}
+	}
+
+}
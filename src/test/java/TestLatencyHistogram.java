@@ -0,0 +1,58 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ticTacToe.LatencyHistogram;
+
+public class TestLatencyHistogram {
+
+	@Test
+	public void testBuckets() {
+		// below 8ns every value has its own bucket
+		LatencyHistogram small = new LatencyHistogram("small");
+		small.record(-5);
+		small.record(0);
+		small.record(7);
+		assertEquals(0L, small.percentile(0.5));
+		assertEquals(7L, small.percentile(1));
+
+		// 16 and 17 share a bucket, 18 starts the next one
+		LatencyHistogram pair = new LatencyHistogram("pair");
+		pair.record(16);
+		pair.record(17);
+		assertEquals(17L, pair.percentile(0.5));
+		LatencyHistogram split = new LatencyHistogram("split");
+		split.record(17);
+		split.record(18);
+		assertEquals(17L, split.percentile(0.5));
+		assertEquals(18L, split.percentile(1));
+
+		// the last bucket ends at the largest long
+		LatencyHistogram large = new LatencyHistogram("large");
+		large.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, large.percentile(0.5));
+
+		assertEquals(0L, new LatencyHistogram("empty").percentile(0.99));
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram h = new LatencyHistogram("us");
+		for (long us = 100; us >= 1; us--)
+			h.record(us * 1000);
+
+		assertEquals(100L, h.count());
+		assertEquals(100000L, h.max());
+
+		// 50us falls in [49152, 53247] and 98us in [90112, 98303]; 99us shares its bucket with the max, which bounds it
+		assertEquals(53247L, h.percentile(0.5));
+		assertEquals(98303L, h.percentile(0.98));
+		assertEquals(100000L, h.percentile(0.99));
+		for (double p : new double[] { 0.01, 0.25, 0.5, 0.9, 0.98 }) {
+			long exact = Math.round(p * 100) * 1000;
+			assertTrue(h.percentile(p) >= exact && h.percentile(p) <= exact * 1.125);
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ticTacToe.LongByteMap;
+import ticTacToe.LongDoubleMap;
+import ticTacToe.LongIntMap;
+
+public class TestLongMaps {
+
+	@Test
+	public void testAgainstHashMap() {
+		for (boolean offHeap : new boolean[] { false, true }) {
+			SplittableRandom random = new SplittableRandom(5);
+			LongDoubleMap doubles = new LongDoubleMap(4, offHeap);
+			LongIntMap ints = new LongIntMap(4, offHeap);
+			LongByteMap bytes = new LongByteMap(4, offHeap);
+			Map<Long, Double> expected = new HashMap<Long, Double>();
+
+			for (int i = 0; i < 100000; i++) {
+				// half sequential keys, which collide in the low bits of a plain table, half random ones, and key 0
+				long key = i % 1000 == 0 ? 0L : i % 2 == 0 ? i : random.nextLong();
+				double value = random.nextDouble();
+				doubles.put(key, value);
+				ints.add(key, 1);
+				bytes.put(key, (byte) key);
+				expected.put(key, value);
+			}
+
+			assertEquals(expected.size(), doubles.size());
+			assertEquals(expected.size(), ints.size());
+			for (Map.Entry<Long, Double> e : expected.entrySet()) {
+				assertEquals(e.getValue(), doubles.get(e.getKey(), Double.NaN), 0.0);
+				assertEquals((byte) e.getKey().longValue(), bytes.get(e.getKey(), (byte) -1));
+			}
+			assertEquals(100, ints.get(0L, -1));
+			assertFalse(doubles.containsKey(1L));
+			assertEquals(-1.0, doubles.get(1L, -1.0), 0.0);
+
+			int visited = 0;
+			for (int slot = doubles.next(-1); slot >= 0; slot = doubles.next(slot)) {
+				assertEquals(expected.get(doubles.keyAt(slot)), doubles.valueAt(slot), 0.0);
+				visited++;
+			}
+			assertEquals(expected.size(), visited);
+			assertTrue(doubles.footprint() > 0);
+
+			doubles.clear();
+			assertEquals(0, doubles.size());
+			assertFalse(doubles.containsKey(0L));
+		}
+	}
+
+}
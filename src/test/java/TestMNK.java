@@ -0,0 +1,97 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ticTacToe.AggressiveAgent;
+import ticTacToe.Agent;
+import ticTacToe.DefensiveAgent;
+import ticTacToe.Game;
+import ticTacToe.GameListener;
+import ticTacToe.IllegalMoveException;
+import ticTacToe.MNK;
+import ticTacToe.Move;
+import ticTacToe.RandomAgent;
+
+public class TestMNK {
+
+	@Test
+	public void testLines() {
+		assertEquals(8, MNK.TIC_TAC_TOE.lines());
+		assertEquals(10, MNK.of(4, 4, 4).lines());
+		assertEquals(28, MNK.of(5, 5, 4).lines());
+		assertEquals(MNK.TIC_TAC_TOE, MNK.parse("3,3,3"));
+	}
+
+	@Test
+	public void testPlayOut() throws IllegalMoveException {
+		SplittableRandom random = new SplittableRandom(11);
+		for (MNK mnk : new MNK[] { MNK.of(4, 4, 4), MNK.of(5, 5, 4), MNK.of(3, 5, 3) })
+			for (int i = 0; i < 300; i++) {
+				Agent x = i % 3 == 0 ? new AggressiveAgent(random.split()) : new RandomAgent(random.split());
+				Agent o = i % 2 == 0 ? new DefensiveAgent(random.split()) : new RandomAgent(random.split());
+				Game g = new Game(mnk, x, o);
+				g.setListener(GameListener.NONE);
+				g.playOut();
+
+				assertEquals(bruteForce(g), g.getState());
+				assertTrue(g.isTerminal());
+			}
+	}
+
+	@Test
+	public void testBounds() {
+		Game g = new Game(MNK.of(4, 4, 4), 'X');
+		assertTrue(g.isLegal(new Move('X', 3, 3)));
+		assertFalse(g.isLegal(new Move('X', 4, 0)));
+		assertFalse(new Game().isLegal(new Move('X', 3, 0)));
+	}
+
+	@Test
+	public void testBoardWrites() {
+		Game g = new Game('X');
+		char[][] board = g.getBoard();
+		board[0][0] = board[1][1] = board[2][2] = 'X';
+		board[0][1] = board[0][2] = 'O';
+
+		assertEquals(Game.X_WON, g.evaluateGameState());
+		Game expected = Game.of(MNK.TIC_TAC_TOE, 0x111L, 0x6L, 'X');
+		assertEquals(expected, g);
+		assertEquals(expected.hashCode(), g.hashCode());
+		assertEquals(expected.zobristKey(), g.zobristKey());
+	}
+
+	/**
+	 * @return the state of {@code g} worked out by checking every k cells in a line on its board
+	 */
+	static int bruteForce(Game g) {
+		MNK mnk = g.getMNK();
+		char[][] board = g.getBoard();
+		int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+		boolean x = false, o = false, full = true;
+		for (int i = 0; i < mnk.rows; i++)
+			for (int j = 0; j < mnk.cols; j++) {
+				full &= board[i][j] != ' ';
+				for (int[] d : directions) {
+					if (!mnk.contains(i + (mnk.k - 1) * d[0], j + (mnk.k - 1) * d[1]))
+						continue;
+
+					int run = 1;
+					while (run < mnk.k && board[i + run * d[0]][j + run * d[1]] == board[i][j])
+						run++;
+					if (run == mnk.k && board[i][j] == 'X')
+						x = true;
+					else if (run == mnk.k && board[i][j] == 'O')
+						o = true;
+				}
+			}
+
+		// a game stops at the first line, so at most one player has one
+		assertFalse(x && o);
+		return x ? Game.X_WON : o ? Game.O_WON : full ? Game.DRAW : Game.ONGOING;
+	}
+
+}
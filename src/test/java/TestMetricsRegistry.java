@@ -0,0 +1,80 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+
+import ticTacToe.MetricsRegistry;
+
+public class TestMetricsRegistry {
+
+	@Test
+	public void testMetrics() throws InterruptedException {
+		MetricsRegistry r = MetricsRegistry.get("TestMetrics");
+		MetricsRegistry.Counter c = r.counter("Games");
+		c.increment();
+		c.add(41);
+		assertEquals(42L, c.get());
+		assertTrue(c == r.counter("Games"));
+
+		MetricsRegistry.Gauge g = r.gauge("Epsilon");
+		g.set(0.5);
+		g.set(0.1);
+		assertEquals(0.1, g.get(), 0.0);
+
+		MetricsRegistry.Timer t = r.timer("Sweep");
+		t.stop(t.start());
+		long start = t.start();
+		Thread.sleep(20);
+		t.stop(start);
+
+		assertEquals(2.0, r.snapshot().get("SweepCount"), 0.0);
+		double total = r.snapshot().get("SweepTotalMillis"), max = r.snapshot().get("SweepMaxMillis");
+		assertTrue(max >= 20 && max <= total);
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		MetricsRegistry r = MetricsRegistry.get("TestMBean");
+		r.counter("Updates").add(7);
+		r.gauge("Residual").set(0.25);
+		r.timer("Train");
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("ticTacToe:type=Training,name=" + ObjectName.quote("TestMBean"));
+		assertEquals(7.0, server.getAttribute(name, "Updates"));
+		assertEquals(0.25, server.getAttribute(name, "Residual"));
+		assertEquals(0.0, server.getAttribute(name, "TrainCount"));
+
+		MBeanInfo info = server.getMBeanInfo(name);
+		List<String> attributes = Arrays.stream(info.getAttributes()).map(MBeanAttributeInfo::getName)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList("Updates", "Residual", "TrainCount", "TrainTotalMillis", "TrainMaxMillis"), attributes);
+		for (MBeanAttributeInfo a : info.getAttributes())
+			assertTrue(a.isReadable() && !a.isWritable() && a.getType().equals("double"));
+
+		try {
+			r.getAttribute("Missing");
+			assertTrue(false);
+		} catch (AttributeNotFoundException e) {
+		}
+		try {
+			r.invoke("reset", new Object[0], new String[0]);
+			assertTrue(false);
+		} catch (ReflectionException e) {
+			assertTrue(e.getTargetException() instanceof NoSuchMethodException);
+		}
+	}
+
+}
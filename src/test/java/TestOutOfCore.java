@@ -0,0 +1,83 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import ticTacToe.CombinatorialIndex;
+import ticTacToe.ExactEvaluator;
+import ticTacToe.Game;
+import ticTacToe.MNK;
+import ticTacToe.OccupancyIndex;
+import ticTacToe.OpponentModel;
+import ticTacToe.OutOfCoreValueIterationAgent;
+import ticTacToe.StateIndex;
+import ticTacToe.ValueIterationAgent;
+
+public class TestOutOfCore {
+
+	@Test
+	public void testIndex() {
+		for (MNK mnk : new MNK[] { MNK.TIC_TAC_TOE, MNK.of(3, 4, 3) }) {
+			StateIndex index = new OccupancyIndex(mnk);
+			assertEquals((long) Math.pow(3, mnk.cells()), index.size());
+
+			long[] stones = new long[2];
+			for (long i = 0; i < index.size(); i++) {
+				index.unrank(i, stones);
+				assertEquals(i, index.rank(stones[0], stones[1]));
+				assertEquals(0L, stones[0] & stones[1]);
+			}
+		}
+	}
+
+	@Test
+	public void testCombinatorialIndex() {
+		for (MNK mnk : new MNK[] { MNK.TIC_TAC_TOE, MNK.of(3, 4, 3) })
+			for (StateIndex index : new StateIndex[] { CombinatorialIndex.xToMove(mnk), CombinatorialIndex.reachable(mnk) }) {
+				long[] stones = new long[2];
+				for (long i = 0; i < index.size(); i++) {
+					index.unrank(i, stones);
+					assertTrue(index.contains(stones[0], stones[1]));
+					assertEquals(i, index.rank(stones[0], stones[1]));
+				}
+
+				// the index is dense: every position it contains has been visited once
+				long contained = 0;
+				for (long i = 0; i < (long) Math.pow(3, mnk.cells()); i++) {
+					long xs = 0, os = 0, code = i;
+					for (int c = 0; c < mnk.cells(); c++, code /= 3) {
+						xs |= code % 3 == 1 ? 1L << c : 0;
+						os |= code % 3 == 2 ? 1L << c : 0;
+					}
+					if (index.contains(xs, os))
+						contained++;
+				}
+				assertEquals(contained, index.size());
+			}
+	}
+
+	@Test
+	public void testAgainstValueIteration() throws IOException {
+		Path directory = Files.createTempDirectory("out-of-core-vi");
+		OutOfCoreValueIterationAgent agent = new OutOfCoreValueIterationAgent(MNK.TIC_TAC_TOE, directory);
+		ValueIterationAgent vi = new ValueIterationAgent();
+
+		for (char starter : new char[] { 'X', 'O' })
+			assertEquals(ExactEvaluator.evaluate(vi.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn,
+					ExactEvaluator.evaluate(agent.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+		assertEquals(ExactEvaluator.evaluate(agent.getPolicy(), OpponentModel.UNIFORM, 'X').expectedReturn,
+				agent.value(new Game('X')), 1e-9);
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files)
+				Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+
+}
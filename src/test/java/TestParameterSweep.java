@@ -0,0 +1,47 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import ticTacToe.CompiledMDP;
+import ticTacToe.MNK;
+import ticTacToe.ParameterSweep;
+import ticTacToe.Policy;
+import ticTacToe.ValueIterationAgent;
+
+public class TestParameterSweep {
+
+	@Test
+	public void testAgainstValueIteration() {
+		List<ParameterSweep.Config> configs = ParameterSweep.grid(new double[] { 0.8, 0.99 }, new double[] { 10 },
+				new double[] { -50, -5 }, new double[] { -1 }, new double[] { 0, 5 });
+		ParameterSweep sweep = new ParameterSweep(2);
+		sweep.setColumns(3);
+		List<ParameterSweep.Result> results = sweep.run(configs);
+		assertEquals(configs.size(), results.size());
+
+		// every column gets the policy a compiled value iteration agent finds for its configuration
+		ValueIterationAgent vi = new ValueIterationAgent(0.9, CompiledMDP.Layout.LAYERED);
+		CompiledMDP mdp = CompiledMDP.get(MNK.TIC_TAC_TOE, CompiledMDP.Layout.LAYERED);
+		for (int i = 0; i < configs.size(); i++) {
+			ParameterSweep.Config c = configs.get(i);
+			assertEquals(c, results.get(i).config);
+			vi.resolve(c.discount, c.winReward, c.loseReward, c.livingReward, c.drawReward);
+			Policy policy = results.get(i).policy();
+			for (int s = 0; s < mdp.states(); s++)
+				assertEquals(vi.getPolicy().getMove(mdp.game(s)), policy.getMove(mdp.game(s)));
+			assertEquals(results.get(i).value, results.get(i).xStarts.expectedReturn, 1e-9);
+		}
+	}
+
+	/**
+	 * A value that is not a number prints the help instead of throwing
+	 */
+	@Test
+	public void testBadNumbers() {
+		for (String option : new String[] { "-d", "-c", "-t" })
+			ParameterSweep.main(new String[] { option, "lots" });
+	}
+
+}
@@ -1,13 +1,19 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.SplittableRandom;
+
 import org.junit.Test;
 
 import ticTacToe.Agent;
 import ticTacToe.AggressiveAgent;
+import ticTacToe.CompiledMDP;
 import ticTacToe.DefensiveAgent;
+import ticTacToe.ExactEvaluator;
 import ticTacToe.Game;
+import ticTacToe.GameListener;
 import ticTacToe.IllegalMoveException;
+import ticTacToe.OpponentModel;
 import ticTacToe.PolicyIterationAgent;
 import ticTacToe.RandomAgent;
 
@@ -33,6 +39,7 @@ public class TestPolicyIterationAgent {
 		
 		for (int i=0;i<howmanyTimes;i++) {
 			gn = new Game(a1, a2, a1);
+			gn.setListener(GameListener.NONE);
 			try {
 				gn.playOut();
 			}
@@ -109,4 +116,35 @@ public class TestPolicyIterationAgent {
 
 	}
 
+	/**
+	 * An agent whose policy comes from the cache works out its values when they are needed, so training it again keeps its policy
+	 */
+	@Test
+	public void testCacheHit() {
+		PolicyIterationAgent solved = new PolicyIterationAgent();
+		PolicyIterationAgent cached = new PolicyIterationAgent();
+		cached.train();
+
+		assertEquals(solved.getPolicy().size(), cached.getPolicy().size());
+		for (char starter : new char[] { 'X', 'O' })
+			assertEquals(ExactEvaluator.evaluate(solved.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn,
+					ExactEvaluator.evaluate(cached.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+	}
+
+	/**
+	 * Agents given the same random stream start from the same policy, and so solve to the same one
+	 */
+	@Test
+	public void testRandomStream() {
+		for (CompiledMDP.Layout layout : new CompiledMDP.Layout[] { null, CompiledMDP.Layout.RANDOM }) {
+			PolicyIterationAgent a = layout == null ? new PolicyIterationAgent(0.9, new SplittableRandom(8))
+					: new PolicyIterationAgent(0.9, layout, new SplittableRandom(8));
+			PolicyIterationAgent b = layout == null ? new PolicyIterationAgent(0.9, new SplittableRandom(8))
+					: new PolicyIterationAgent(0.9, layout, new SplittableRandom(8));
+			for (Game g : Game.generateAllValidGames('X'))
+				if (!g.isTerminal())
+					assertEquals(a.getPolicy().getMove(g), b.getPolicy().getMove(g));
+		}
+	}
+
 }
@@ -1,11 +1,20 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
 
 import org.junit.Test;
 
 import ticTacToe.AggressiveAgent;
 import ticTacToe.DefensiveAgent;
+import ticTacToe.ExactEvaluator;
+import ticTacToe.OpponentModel;
 import ticTacToe.QLearningAgent;
+import ticTacToe.QLearningSearch;
 import ticTacToe.RandomAgent;
+import ticTacToe.SparseQTable;
 
 public class TestQLearning {
 	@Test
@@ -41,4 +50,49 @@ public class TestQLearning {
 
 	}
 
+	@Test
+	public void testSearch() {
+		List<QLearningSearch.Config> configs = QLearningSearch.grid(new double[] { 0.1, 0.5 }, new double[] { 0.05, 0.2 },
+				new double[] { 0.9 });
+		List<List<QLearningSearch.Trial>> runs = new ArrayList<List<QLearningSearch.Trial>>();
+		for (int threads : new int[] { 1, 3 }) {
+			QLearningSearch search = new QLearningSearch(threads);
+			search.setSeed(42);
+			search.setEpisodes(500, 2000);
+			runs.add(search.run(configs));
+		}
+
+		// halving 4 trials at 500 and 1000 episodes leaves one trained to 2000, whatever the number of threads
+		int[] episodes = { 2000, 1000, 500, 500 };
+		for (int i = 0; i < configs.size(); i++) {
+			assertEquals(episodes[i], runs.get(0).get(i).episodes());
+			assertEquals(runs.get(0).get(i).config, runs.get(1).get(i).config);
+			assertEquals(runs.get(0).get(i).scores, runs.get(1).get(i).scores);
+		}
+	}
+
+	@Test
+	public void testLazy() {
+		QLearningAgent agent = new QLearningAgent(new DefensiveAgent(new SplittableRandom(1)), 0.1, 20000, 0.9,
+				new SplittableRandom(2), false, false, true);
+		SparseQTable table = agent.getSparseTable();
+
+		// only some of the 4520 games where X is to move come up, and only some of their moves are learnt
+		assertTrue(table.visitedStates() > 0 && table.visitedStates() < 4520);
+		assertTrue(table.size() < 16167);
+		assertTrue(table.footprint() > 0);
+
+		ExactEvaluator.Evaluation e = ExactEvaluator.evaluate(agent.getPolicy(), OpponentModel.DEFENSIVE, 'X');
+		assertEquals(0.0, e.oWon, 0.0);
+	}
+
+	/**
+	 * A value that is not a number prints the help instead of throwing
+	 */
+	@Test
+	public void testSearchBadNumbers() {
+		for (String option : new String[] { "-a", "-g", "-n", "-seed" })
+			QLearningSearch.main(new String[] { option, "lots" });
+	}
+
 }
@@ -0,0 +1,51 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ticTacToe.CombinatorialIndex;
+import ticTacToe.Game;
+import ticTacToe.MNK;
+import ticTacToe.StateSpace;
+
+public class TestStateSpace {
+
+	@Test
+	public void testAgainstHashes() {
+		for (char xo : new char[] { 'X', 'O' }) {
+			// every game hash that is a valid game, as generateAllValidGames used to find them; the last digit is whose turn it is
+			List<Game> expected = new ArrayList<Game>();
+			for (int i = 0; i < 59048; i++) {
+				Game g = Game.inverseHash(i);
+				if (g == null || !g.isValid())
+					continue;
+
+				g.evaluateGameState();
+				if (g.hashCode() % 3 == (xo == 'X' ? 1 : 2) || g.isTerminal())
+					expected.add(g);
+			}
+
+			assertEquals(expected, Game.generateAllValidGames(xo));
+		}
+	}
+
+	@Test
+	public void testParallel() {
+		MNK mnk = MNK.of(3, 4, 3);
+		assertEquals(StateSpace.games(mnk, 'O').count(), StateSpace.games(mnk, 'O').parallel().count());
+
+		CombinatorialIndex index = CombinatorialIndex.reachable(mnk);
+		long[] stones = new long[2];
+		for (int n = 0; n <= mnk.cells(); n++)
+			for (long i : StateSpace.layer(index, n).toArray()) {
+				index.unrank(i, stones);
+				assertEquals(n, Long.bitCount(stones[0] | stones[1]));
+			}
+
+		assertTrue(Game.generateAllValidGames(mnk, 'X').size() > Game.generateAllValidGames('X').size());
+	}
+
+}
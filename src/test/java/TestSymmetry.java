@@ -0,0 +1,56 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ticTacToe.ExactEvaluator;
+import ticTacToe.Game;
+import ticTacToe.Move;
+import ticTacToe.OpponentModel;
+import ticTacToe.QLearningAgent;
+import ticTacToe.RandomAgent;
+import ticTacToe.Symmetry;
+import ticTacToe.ValueIterationAgent;
+
+public class TestSymmetry {
+
+	@Test
+	public void testCanonical() {
+		int games = 0, canonical = 0;
+		for (Game g : Game.generateAllValidGames('X')) {
+			games++;
+			if (Symmetry.isCanonical(g))
+				canonical++;
+
+			Game c = Symmetry.canonical(g);
+			for (int t = 0; t < Symmetry.COUNT; t++) {
+				Game image = Symmetry.apply(g, t);
+				assertEquals(c, Symmetry.canonical(image));
+				assertEquals(g.getState(), image.getState());
+
+				for (Move m : g.getPossibleMoves())
+					assertEquals(m, Symmetry.invert(Symmetry.apply(m, t), t));
+			}
+		}
+		System.out.println(canonical + " canonical games out of " + games);
+		assertTrue(canonical * 6 < games);
+	}
+
+	@Test
+	public void testSymmetricSolvers() {
+		ValueIterationAgent vi = new ValueIterationAgent(0.9, false);
+		ValueIterationAgent symmetric = new ValueIterationAgent(0.9, true);
+		for (char starter : new char[] { 'X', 'O' })
+			assertEquals(ExactEvaluator.evaluate(vi.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn,
+					ExactEvaluator.evaluate(symmetric.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+
+		QLearningAgent ql = new QLearningAgent(new RandomAgent(new SplittableRandom(1)), 0.1, 5000, 0.9,
+				new SplittableRandom(2), true);
+		ExactEvaluator.Evaluation e = ExactEvaluator.evaluate(ql.getPolicy(), OpponentModel.UNIFORM, 'X');
+		System.out.println(e);
+		assertEquals(0.0, e.oWon, 0.0);
+	}
+
+}
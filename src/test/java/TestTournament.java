@@ -0,0 +1,70 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import ticTacToe.CountingGameListener;
+import ticTacToe.DefensiveAgent;
+import ticTacToe.Game;
+import ticTacToe.IllegalMoveException;
+import ticTacToe.RandomAgent;
+import ticTacToe.Tournament;
+import ticTacToe.ValueIterationAgent;
+
+public class TestTournament {
+
+	@Test
+	public void testCounts() throws IllegalMoveException {
+		Tournament t = new Tournament(4);
+		CountingGameListener counter = new CountingGameListener();
+		t.setListener(counter);
+		Tournament.Entrant random = new Tournament.Entrant("random", RandomAgent::new);
+
+		Tournament.Result r = t.playMatch(random, random, 25001, 'X');
+		System.out.println(r);
+		assertEquals(25001L, r.games());
+		assertEquals(25001L, counter.getGames());
+		assertEquals(r.oWon, counter.getResults(Game.O_WON));
+	}
+
+	@Test
+	public void testReproducible() throws IllegalMoveException {
+		Tournament.Entrant random = new Tournament.Entrant("random", RandomAgent::new);
+		Tournament.Entrant def = new Tournament.Entrant("def", DefensiveAgent::new);
+
+		Tournament serial = new Tournament(1);
+		serial.setSeed(42);
+		Tournament.Result r1 = serial.playMatch(random, def, 35000, 'X');
+
+		Tournament parallel = new Tournament(4);
+		parallel.setSeed(42);
+		Tournament.Result r2 = parallel.playMatch(random, def, 35000, 'X');
+
+		assertEquals(r1.xWon, r2.xWon);
+		assertEquals(r1.oWon, r2.oWon);
+		assertEquals(r1.draws, r2.draws);
+	}
+
+	@Test
+	public void testValueIteration() throws IllegalMoveException {
+		Tournament t = new Tournament(4);
+		Tournament.Entrant vi = new Tournament.Entrant("vi", Tournament.sharing(new ValueIterationAgent()));
+		Tournament.Entrant random = new Tournament.Entrant("random", RandomAgent::new);
+
+		Tournament.Result r = t.playMatch(vi, random, 20000, 'X');
+		System.out.println(r);
+		assertEquals(20000L, r.games());
+		assertEquals(0L, r.oWon);
+	}
+
+	/**
+	 * A value that is not a number prints the help instead of throwing
+	 */
+	@Test
+	public void testBadNumbers() throws IllegalMoveException, IOException {
+		for (String option : new String[] { "-n", "-t", "-seed" })
+			Tournament.main(new String[] { option, "lots" });
+	}
+
+}
@@ -4,6 +4,9 @@ import org.junit.Test;
 
 import ticTacToe.AggressiveAgent;
 import ticTacToe.DefensiveAgent;
+import ticTacToe.ExactEvaluator;
+import ticTacToe.OpponentModel;
+import ticTacToe.Policy;
 import ticTacToe.RandomAgent;
 import ticTacToe.ValueIterationAgent;
 
@@ -41,4 +44,19 @@ public class TestValueIteration {
 
 	}
 
+	/**
+	 * An agent whose policy comes from the cache works out its values when they are needed, so it extracts the same policy
+	 */
+	@Test
+	public void testCacheHit() {
+		ValueIterationAgent solved = new ValueIterationAgent();
+		ValueIterationAgent cached = new ValueIterationAgent();
+		Policy policy = cached.extractPolicy();
+
+		assertEquals(solved.getPolicy().size(), policy.size());
+		for (char starter : new char[] { 'X', 'O' })
+			assertEquals(ExactEvaluator.evaluate(solved.getPolicy(), OpponentModel.UNIFORM, starter).expectedReturn,
+					ExactEvaluator.evaluate(policy, OpponentModel.UNIFORM, starter).expectedReturn, 1e-9);
+	}
+
 }
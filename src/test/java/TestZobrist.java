@@ -0,0 +1,56 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import ticTacToe.Game;
+import ticTacToe.IllegalMoveException;
+import ticTacToe.Move;
+
+public class TestZobrist {
+
+	@Test
+	public void testIncremental() throws IllegalMoveException {
+		SplittableRandom random = new SplittableRandom(3);
+		for (int i = 0; i < 1000; i++) {
+			Game g = new Game(random.nextBoolean() ? 'X' : 'O');
+			long start = g.zobristKey();
+			Deque<Move> played = new ArrayDeque<Move>();
+
+			while (!g.isTerminal()) {
+				List<Move> moves = g.getPossibleMoves();
+				Move m = moves.get(random.nextInt(moves.size()));
+				assertEquals(g.simulateMove(m).zobristKey(), Game.inverseHash(g.simulateMove(m).hashCode()).zobristKey());
+
+				g.executeMove(m);
+				played.push(m);
+				assertEquals(Game.inverseHash(g.hashCode()).zobristKey(), g.zobristKey());
+			}
+
+			while (!played.isEmpty())
+				g.unmakeMove(played.pop());
+			assertEquals(start, g.zobristKey());
+		}
+	}
+
+	@Test
+	public void testUnique() {
+		// terminal games are generated for both turns, so count distinct games by their hashCode
+		Set<Integer> hashes = new HashSet<Integer>();
+		Set<Long> keys = new HashSet<Long>();
+		for (char turn : new char[] { 'X', 'O' })
+			for (Game g : Game.generateAllValidGames(turn)) {
+				hashes.add(g.hashCode());
+				keys.add(g.zobristKey());
+			}
+
+		assertEquals(hashes.size(), keys.size());
+	}
+
+}
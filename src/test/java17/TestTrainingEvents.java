@@ -0,0 +1,98 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ticTacToe.CompiledMDP;
+import ticTacToe.Game;
+import ticTacToe.GameListener;
+import ticTacToe.IllegalMoveException;
+import ticTacToe.QLearningAgent;
+import ticTacToe.RandomAgent;
+import ticTacToe.ValueIterationAgent;
+
+/**
+ * The Java Flight Recorder events of the Java 17 {@code TrainingEvents}. Only the java17 profile runs this, against the
+ * multi-release jar, see the pom: on the Java 8 base the events are never recorded.
+ */
+public class TestTrainingEvents {
+
+	@Test
+	public void testRecording() throws IOException, IllegalMoveException {
+		Path file = Files.createTempFile("training", ".jfr");
+		try (Recording recording = new Recording()) {
+			for (String name : new String[] { "MDPCompilation", "ValueIterationSweep", "PolicyExtraction", "AgentMove" })
+				recording.enable("ticTacToe." + name).withoutThreshold();
+			recording.start();
+
+			ValueIterationAgent agent = new ValueIterationAgent(0.9, CompiledMDP.Layout.LAYERED);
+			Game g = new Game(agent, new RandomAgent(), agent);
+			g.setListener(GameListener.NONE);
+			g.playOut();
+
+			recording.stop();
+			recording.dump(file);
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			Map<String, Integer> counts = new HashMap<String, Integer>();
+			for (RecordedEvent e : events) {
+				counts.merge(e.getEventType().getName(), 1, Integer::sum);
+				if (e.getEventType().getName().equals("ticTacToe.MDPCompilation")) {
+					assertEquals("ValueIterationAgent", e.getString("solver"));
+					assertTrue(e.getLong("states") > 0);
+					assertTrue(e.getLong("transitions") > 0);
+				}
+			}
+
+			assertEquals(Integer.valueOf(1), counts.get("ticTacToe.MDPCompilation"));
+			assertTrue(counts.get("ticTacToe.ValueIterationSweep") > 0);
+			assertEquals(Integer.valueOf(1), counts.get("ticTacToe.PolicyExtraction"));
+			assertTrue(counts.get("ticTacToe.AgentMove") > 0);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * A lazy agent does not enumerate the states before training, so it records no compilation
+	 */
+	@Test
+	public void testLazyQLearning() throws IOException {
+		Path file = Files.createTempFile("training", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("ticTacToe.MDPCompilation").withoutThreshold();
+			recording.enable("ticTacToe.QLearningEpisodes").withoutThreshold();
+			recording.start();
+
+			new QLearningAgent(new RandomAgent(new SplittableRandom(1)), 0.1, 2000, 0.9, new SplittableRandom(2), false, false, true);
+
+			recording.stop();
+			recording.dump(file);
+
+			int compilations = 0;
+			long episodes = 0;
+			for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+				if (e.getEventType().getName().equals("ticTacToe.MDPCompilation"))
+					compilations++;
+				else if (e.getEventType().getName().equals("ticTacToe.QLearningEpisodes"))
+					episodes += e.getLong("episodes");
+			}
+			assertEquals(0, compilations);
+			assertEquals(2000L, episodes);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+}